@@ -0,0 +1,330 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Outcome of screening one claim; only DUPLICATE stops the claim, the others are flags for review
+enum ClaimVerdict {
+    CLEAR("No issues found."),
+    DUPLICATE("Duplicate of an earlier claim."),
+    SIMILAR_CLAIM("Similar to an earlier claim on this policy for the same date."),
+    POLICY_VELOCITY("Too many claims on this policy in the last 24 hours."),
+    HOLDER_VELOCITY("Too many claims by this policy holder in the last 24 hours."),
+    HIGH_AMOUNT("Claim is close to the full coverage amount.");
+
+    private final String message;
+
+    ClaimVerdict(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
+
+// One screened claim, kept on its policy so a duplicate can be confirmed exactly and screening rebuilt at boot
+class ClaimRecord {
+    private final double amount;
+    private final LocalDate claimDate;
+    private final long submittedAtMillis;
+
+    ClaimRecord(double amount, LocalDate claimDate, long submittedAtMillis) {
+        this.amount = amount;
+        this.claimDate = claimDate;
+        this.submittedAtMillis = submittedAtMillis;
+    }
+
+    public double getAmount() { return amount; }
+    public LocalDate getClaimDate() { return claimDate; }
+    public long getSubmittedAtMillis() { return submittedAtMillis; }
+
+    boolean sameClaim(double amount, LocalDate claimDate) {
+        return Double.compare(this.amount, amount) == 0 && this.claimDate.equals(claimDate);
+    }
+}
+
+class ClaimDecision {
+    private final boolean approved;
+    private final ClaimVerdict verdict;
+
+    ClaimDecision(boolean approved, ClaimVerdict verdict) {
+        this.approved = approved;
+        this.verdict = verdict;
+    }
+
+    public boolean isApproved() { return approved; }
+    public ClaimVerdict getVerdict() { return verdict; }
+    public boolean isFlagged() { return verdict != ClaimVerdict.CLEAR; }
+}
+
+// --- Bloom filter over 64-bit fingerprints, lock-free ---
+class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitMask;
+    private final int hashes;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(int log2Bits, int hashes) {
+        this.bits = new AtomicLongArray(1 << (log2Bits - 6));
+        this.bitMask = (1L << log2Bits) - 1;
+        this.hashes = hashes;
+    }
+
+    public boolean mightContain(long fingerprint) {
+        long h1 = fingerprint, h2 = Hashing.mix64(fingerprint) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // Returns true if the fingerprint was (probably) already present
+    public boolean put(long fingerprint) {
+        long h1 = fingerprint, h2 = Hashing.mix64(fingerprint) | 1;
+        boolean present = true;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            while (true) {
+                long current = bits.get(word);
+                if ((current & mask) != 0) break;
+                present = false;
+                if (bits.compareAndSet(word, current, current | mask)) break;
+            }
+        }
+        if (!present) insertions.incrementAndGet();
+        return present;
+    }
+
+    public long insertions() {
+        return insertions.get();
+    }
+}
+
+// --- Velocity Table: recent event hours per key, in a fixed number of entries ---
+// Entries live in buckets of 8; a key only ever occupies its own bucket, so one lock stripe per bucket
+// group is enough. Each entry keeps its last 8 event hours as full epoch hours (+1, so 0 = unused), which
+// compare exactly however far apart they are. When a bucket is full of live keys, the least recently
+// active one is evicted, which can only make the table under-count, never flag a key within its limit.
+class VelocityTable {
+    private static final int BUCKET_SIZE = 8;
+    private static final int STAMPS = 8;
+    private static final int STRIPES = 256;
+
+    private final long[] keys;
+    private final int[] stamps, lastStamps;
+    private final int bucketMask, windowHours;
+    private final Object[] locks = new Object[STRIPES];
+
+    public VelocityTable(int log2Entries, int windowHours) {
+        if (windowHours <= 0) throw new IllegalArgumentException("Window must be positive.");
+        int entries = 1 << log2Entries;
+        this.keys = new long[entries];
+        this.stamps = new int[entries * STAMPS];
+        this.lastStamps = new int[entries];
+        this.bucketMask = entries / BUCKET_SIZE - 1;
+        this.windowHours = windowHours;
+        for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+    }
+
+    // Records one event for the key and returns how many of its events fall inside the window
+    public int record(long hash, long nowHour) {
+        long key = hash | 1; // 0 marks an empty entry
+        int nowStamp = (int) nowHour + 1;
+        int bucket = (int) (Hashing.mix64(hash) & bucketMask);
+        int base = bucket * BUCKET_SIZE;
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            int slot = -1, victim = base;
+            for (int i = base; i < base + BUCKET_SIZE; i++) {
+                if (keys[i] == key) { slot = i; break; }
+                if (lastStamps[i] < lastStamps[victim]) victim = i;
+            }
+            int first = (slot < 0 ? victim : slot) * STAMPS;
+            if (slot < 0) {
+                slot = victim;
+                keys[slot] = key;
+                Arrays.fill(stamps, first, first + STAMPS, 0);
+            }
+            // Overwrite the oldest stamp, or an unused one
+            int oldest = first;
+            for (int i = first + 1; i < first + STAMPS; i++) {
+                if (stamps[i] < stamps[oldest]) oldest = i;
+            }
+            stamps[oldest] = nowStamp;
+            lastStamps[slot] = Math.max(lastStamps[slot], nowStamp);
+
+            int inWindow = 0;
+            for (int i = first; i < first + STAMPS; i++) {
+                if (stamps[i] != 0 && Math.abs(nowStamp - stamps[i]) < windowHours) inWindow++;
+            }
+            return inWindow;
+        }
+    }
+}
+
+// --- Claim Screen: inline fraud screening in front of InsurancePolicy.processClaim ---
+// Duplicates are detected with two rotating Bloom filter generations of claim fingerprints
+// (policyId, amount bucket, claim date), so memory stays bounded while the last generation's
+// claims are still remembered. A filter hit is only a DUPLICATE once the policy's own claim record
+// confirms the same amount on the same date; otherwise it is flagged as SIMILAR_CLAIM for review.
+// Velocity is tracked per policy and per policy holder over 24 hours. Restored claims are replayed
+// through remember(), so neither survives a restart empty.
+class ClaimScreen {
+    private static final int FILTER_LOG2_BITS = 24;           // 2 MB per generation
+    private static final int FILTER_HASHES = 7;
+    private static final long GENERATION_CAPACITY = 1_000_000; // ~0.05% false positives when full
+    private static final double AMOUNT_BUCKET = 10.0;
+    private static final int VELOCITY_LOG2_ENTRIES = 18;       // 262,144 active keys, ~11 MB per table
+    private static final int VELOCITY_WINDOW_HOURS = 24;
+    private static final int MAX_CLAIMS_PER_POLICY = 3;
+    private static final int MAX_CLAIMS_PER_HOLDER = 5;
+    private static final double HIGH_AMOUNT_RATIO = 0.9;
+    // Bounds on each policy's exact claim record: a claim older than this, or beyond the most recent
+    // CLAIMS_KEPT, is forgotten, so a later filter hit on it is flagged SIMILAR_CLAIM rather than rejected
+    static final long CLAIM_RETENTION_MILLIS = 365L * 24 * 3_600_000L;
+    static final int CLAIMS_KEPT = 16;
+    private static final ClaimScreen SHARED = new ClaimScreen();
+
+    private static final class Generations {
+        final BloomFilter current, previous;
+
+        Generations(BloomFilter current, BloomFilter previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+    private final AtomicReference<Generations> filters =
+            new AtomicReference<>(new Generations(newFilter(), newFilter()));
+    private final VelocityTable policyVelocity = new VelocityTable(VELOCITY_LOG2_ENTRIES, VELOCITY_WINDOW_HOURS);
+    private final VelocityTable holderVelocity = new VelocityTable(VELOCITY_LOG2_ENTRIES, VELOCITY_WINDOW_HOURS);
+    private final Counter[] verdictCounters = new Counter[ClaimVerdict.values().length];
+
+    ClaimScreen() {
+        for (ClaimVerdict v : ClaimVerdict.values()) {
+            verdictCounters[v.ordinal()] = Metrics.counter("insurance.claims_screened." + v.name().toLowerCase());
+        }
+    }
+
+    public static ClaimScreen shared() {
+        return SHARED;
+    }
+
+    public ClaimVerdict screen(InsurancePolicy policy, double claimAmount, LocalDate claimDate, long nowMillis) {
+        ClaimVerdict verdict = evaluate(policy, claimAmount, claimDate, nowMillis);
+        verdictCounters[verdict.ordinal()].increment();
+        return verdict;
+    }
+
+    // The caller holds the policy's monitor, so the exact check sees every earlier claim on it
+    ClaimVerdict evaluate(InsurancePolicy policy, double claimAmount, LocalDate claimDate, long nowMillis) {
+        long policyHash = Hashing.hash64(policy.getPolicyId());
+        boolean seen = rememberFingerprint(policyHash, claimAmount, claimDate);
+        if (seen && policy.hasClaim(claimAmount, claimDate)) return ClaimVerdict.DUPLICATE;
+
+        long nowHour = nowMillis / 3_600_000L;
+        int policyClaims = policyVelocity.record(policyHash, nowHour);
+        int holderClaims = holderVelocity.record(holderKey(policy, policyHash), nowHour);
+        if (policyClaims > MAX_CLAIMS_PER_POLICY) return ClaimVerdict.POLICY_VELOCITY;
+        if (holderClaims > MAX_CLAIMS_PER_HOLDER) return ClaimVerdict.HOLDER_VELOCITY;
+        if (seen) return ClaimVerdict.SIMILAR_CLAIM;
+        if (claimAmount >= policy.getCoverageAmount() * HIGH_AMOUNT_RATIO) return ClaimVerdict.HIGH_AMOUNT;
+        return ClaimVerdict.CLEAR;
+    }
+
+    // Replays a restored claim: its fingerprint always, its velocity only if it is still inside the window
+    public void remember(InsurancePolicy policy, ClaimRecord claim, long nowMillis) {
+        long policyHash = Hashing.hash64(policy.getPolicyId());
+        rememberFingerprint(policyHash, claim.getAmount(), claim.getClaimDate());
+        long hour = claim.getSubmittedAtMillis() / 3_600_000L;
+        if (nowMillis / 3_600_000L - hour >= VELOCITY_WINDOW_HOURS) return;
+        policyVelocity.record(policyHash, hour);
+        holderVelocity.record(holderKey(policy, policyHash), hour);
+    }
+
+    // Returns true if the fingerprint was (probably) seen before
+    private boolean rememberFingerprint(long policyHash, double claimAmount, LocalDate claimDate) {
+        long fingerprint = Hashing.mix64(policyHash ^ Hashing.mix64((long) Math.floor(claimAmount / AMOUNT_BUCKET))
+                ^ Hashing.mix64(claimDate.toEpochDay() + 0x9e3779b97f4a7c15L));
+        Generations g = rotateIfFull(filters.get());
+        return g.previous.mightContain(fingerprint) || g.current.put(fingerprint);
+    }
+
+    private Generations rotateIfFull(Generations g) {
+        if (g.current.insertions() < GENERATION_CAPACITY) return g;
+        Generations next = new Generations(newFilter(), g.current);
+        return filters.compareAndSet(g, next) ? next : filters.get();
+    }
+
+    // A holder without a name cannot be matched across policies, so it only counts against its own policy
+    private static long holderKey(InsurancePolicy policy, long policyHash) {
+        Person holder = policy.getPolicyHolder();
+        String name = holder.getName() == null ? "" : holder.getName().trim();
+        if (name.isEmpty()) return Hashing.mix64(policyHash + 1);
+        return Hashing.hash64(name.toLowerCase() + '|' + holder.getAge());
+    }
+
+    private static BloomFilter newFilter() {
+        return new BloomFilter(FILTER_LOG2_BITS, FILTER_HASHES);
+    }
+}
+
+// --- Self-test: each verdict from a private screen, plus the claim record bounds (run by SelfTest) ---
+class ClaimScreenSelfTest {
+    private static final long HOUR = 3_600_000L;
+
+    static void run() {
+        ClaimScreen screen = new ClaimScreen();
+        long now = System.currentTimeMillis();
+        LocalDate day = LocalDate.of(2026, 3, 1);
+
+        InsurancePolicy policy = policy("CS-1", "Dana Reyes");
+        SelfTest.check(decide(screen, policy, 500, day, now) == ClaimVerdict.CLEAR, "first claim is clear");
+        SelfTest.check(decide(screen, policy, 500, day, now) == ClaimVerdict.DUPLICATE, "same claim again");
+        SelfTest.check(decide(screen, policy, 504, day, now) == ClaimVerdict.SIMILAR_CLAIM, "same day, near amount");
+        SelfTest.check(decide(screen, policy, 800, day.plusDays(1), now) == ClaimVerdict.CLEAR, "third claim today");
+        SelfTest.check(decide(screen, policy, 900, day.plusDays(2), now) == ClaimVerdict.POLICY_VELOCITY,
+                "fourth claim on the policy within 24 hours");
+        SelfTest.check(decide(screen, policy, 700, day.plusDays(3), now + 25 * HOUR) == ClaimVerdict.CLEAR,
+                "velocity window has passed");
+        SelfTest.check(decide(screen, policy("CS-2", "Sam Ito"), 9_500, day, now) == ClaimVerdict.HIGH_AMOUNT,
+                "claim near the coverage amount");
+
+        // One holder across six policies: the sixth claim in a day trips the holder limit
+        ClaimVerdict last = null;
+        for (int i = 0; i < 6; i++) last = decide(screen, policy("CS-H" + i, "Lee Park"), 300 + i * 50, day, now);
+        SelfTest.check(last == ClaimVerdict.HOLDER_VELOCITY, "sixth claim by one holder within 24 hours");
+        // Nameless holders are not one person
+        for (int i = 0; i < 6; i++) last = decide(screen, policy("CS-N" + i, null), 300 + i * 50, day, now);
+        SelfTest.check(last == ClaimVerdict.CLEAR, "nameless holders counted per policy");
+
+        // The exact record forgets claims past retention and keeps only the most recent CLAIMS_KEPT
+        InsurancePolicy bounded = policy("CS-3", "Ana Silva");
+        SelfTest.check(!bounded.addClaim(new ClaimRecord(100, day, now - ClaimScreen.CLAIM_RETENTION_MILLIS - HOUR)),
+                "claim past retention not kept");
+        for (int i = 0; i < ClaimScreen.CLAIMS_KEPT + 4; i++) bounded.addClaim(new ClaimRecord(100 + i, day, now));
+        SelfTest.check(bounded.getClaims().size() == ClaimScreen.CLAIMS_KEPT, "claim record capped");
+        SelfTest.check(!bounded.hasClaim(100, day) && bounded.hasClaim(100 + ClaimScreen.CLAIMS_KEPT + 3, day),
+                "oldest claims dropped first");
+    }
+
+    // As InsurancePolicy.submitClaim does, less processClaim: screen, then record anything not a duplicate
+    private static ClaimVerdict decide(ClaimScreen screen, InsurancePolicy policy, double amount, LocalDate date,
+            long nowMillis) {
+        ClaimVerdict verdict = screen.evaluate(policy, amount, date, nowMillis);
+        if (verdict != ClaimVerdict.DUPLICATE) policy.addClaim(new ClaimRecord(amount, date, nowMillis));
+        return verdict;
+    }
+
+    // Built directly rather than through MotorVehicleInsuranceSystem, which would restore the shared book
+    private static InsurancePolicy policy(String policyId, String holderName) {
+        Vehicle vehicle = new Vehicle("Car", 2020, 1500, true, true, true, false);
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        return new ComprehensivePolicy(policyId, vehicle, new Person(holderName, 40, true), 10_000, 0, start,
+                start.plusYears(1));
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+// --- Console Input: byte-level tokenizer shared by every interactive prompt ---
+// A drop-in for the Scanner calls the subsystems used: tokens are whitespace-separated and nextLine returns
+// the rest of the current line, so "nextInt(); nextLine();" reads the same way it did with Scanner.
+// Numbers are parsed in place in the buffer; only nextLine and the rare double that needs full
+// correctly-rounded parsing create a String. One instance reads System.in for the whole program, so input
+// buffered while one subsystem is prompting is still there for the next.
+// Unlike Scanner, a token that fails to parse is consumed, so a retry loop cannot spin on it.
+final class ConsoleInput {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final ConsoleInput STDIN = new ConsoleInput(System.in);
+    // Powers of ten that are exact doubles, for the fast path of nextDouble
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos, limit;
+    private boolean eof;
+    // Only used for lines that span a buffer refill
+    private byte[] lineBuf = new byte[256];
+
+    ConsoleInput(InputStream in) {
+        this.in = in;
+    }
+
+    public static ConsoleInput stdin() {
+        return STDIN;
+    }
+
+    public synchronized int nextInt() {
+        int end = nextToken();
+        int start = pos;
+        pos = end;
+        int i = start;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') i++;
+        if (i == end) throw mismatch(start, end);
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) throw mismatch(start, end);
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) throw mismatch(start, end);
+        }
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw mismatch(start, end);
+        return (int) value;
+    }
+
+    // Fast path (Clinger): a mantissa below 2^53 scaled by an exactly representable power of ten is
+    // correctly rounded by a single multiply or divide. Anything else falls back to Double.parseDouble.
+    public synchronized double nextDouble() {
+        int end = nextToken();
+        int start = pos;
+        pos = end;
+        int i = start;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') i++;
+
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        boolean seenPoint = false, seenDigit = false, fast = true;
+        for (; i < end; i++) {
+            byte b = buf[i];
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (seenPoint) fractionDigits++;
+                } else {
+                    fast = false;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && buf[i] == '-';
+            if (i < end && (buf[i] == '-' || buf[i] == '+')) i++;
+            int exponentStart = i;
+            for (; i < end && buf[i] >= '0' && buf[i] <= '9' && exponent < 10_000; i++) {
+                exponent = exponent * 10 + (buf[i] - '0');
+            }
+            if (i == exponentStart) fast = false;
+            if (negativeExponent) exponent = -exponent;
+        }
+        exponent -= fractionDigits;
+
+        if (fast && seenDigit && i == end && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(buf, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw mismatch(start, end);
+        }
+    }
+
+    public synchronized boolean nextBoolean() {
+        int end = nextToken();
+        int start = pos;
+        pos = end;
+        if (matches(start, end, "true")) return true;
+        if (matches(start, end, "false")) return false;
+        throw mismatch(start, end);
+    }
+
+    // Returns the rest of the current line without its terminator (\n, \r\n or \r)
+    public synchronized String nextLine() {
+        if (!ensure()) throw new NoSuchElementException("No line found");
+        int start = pos, saved = 0;
+        while (true) {
+            while (pos < limit && buf[pos] != '\n' && buf[pos] != '\r') pos++;
+            if (pos < limit) break;
+            // The line continues past the buffer: keep what was read so far before refilling it
+            saved = save(saved, start, pos);
+            start = 0;
+            if (!fill()) break;
+        }
+        // Common case: the whole line was in the buffer and becomes the String directly
+        String line = saved == 0
+                ? new String(buf, start, pos - start, StandardCharsets.UTF_8)
+                : new String(lineBuf, 0, save(saved, start, pos), StandardCharsets.UTF_8);
+        skipTerminator();
+        return line;
+    }
+
+    // Discards the rest of the current line without creating a String
+    public synchronized void skipLine() {
+        if (!ensure()) throw new NoSuchElementException("No line found");
+        while (true) {
+            while (pos < limit && buf[pos] != '\n' && buf[pos] != '\r') pos++;
+            if (pos < limit || !fill()) break;
+        }
+        skipTerminator();
+    }
+
+    // Skips whitespace and makes sure the whole next token is in the buffer; returns its end index
+    private int nextToken() {
+        while (true) {
+            if (!ensure()) throw new NoSuchElementException();
+            while (pos < limit && isSpace(buf[pos])) pos++;
+            if (pos < limit) break;
+        }
+        int end = pos;
+        while (true) {
+            while (end < limit && !isSpace(buf[end])) end++;
+            if (end < limit || eof) return end;
+            // Token runs to the end of the buffer: move it to the front and read more
+            int length = end - pos;
+            if (length == buf.length) throw new InputMismatchException("Token longer than " + buf.length + " bytes");
+            System.arraycopy(buf, pos, buf, 0, length);
+            pos = 0;
+            limit = length;
+            end = length;
+            read();
+        }
+    }
+
+    // ASCII whitespace and control characters; bytes of multi-byte UTF-8 characters are negative
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private void skipTerminator() {
+        if (pos >= limit) return;
+        byte b = buf[pos++];
+        if (b == '\r' && ensure() && buf[pos] == '\n') pos++;
+    }
+
+    // True if at least one unread byte is available
+    private boolean ensure() {
+        return pos < limit || fill();
+    }
+
+    private boolean fill() {
+        pos = 0;
+        limit = 0;
+        if (eof) return false;
+        read();
+        return limit > 0;
+    }
+
+    private void read() {
+        try {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) eof = true;
+            else limit += n;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Appends buf[from, to) to the line buffer after its first `saved` bytes; returns the new length
+    private int save(int saved, int from, int to) {
+        int length = saved + to - from;
+        if (lineBuf.length < length) lineBuf = Arrays.copyOf(lineBuf, Math.max(lineBuf.length * 2, length));
+        System.arraycopy(buf, from, lineBuf, saved, to - from);
+        return length;
+    }
+
+    private boolean matches(int start, int end, String word) {
+        if (end - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if ((buf[start + i] | 0x20) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private InputMismatchException mismatch(int start, int end) {
+        return new InputMismatchException("For input string: \"" + new String(buf, start, end - start,
+                StandardCharsets.UTF_8) + "\"");
+    }
+}
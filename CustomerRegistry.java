@@ -0,0 +1,219 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+// Validation outcome: shared constants, so a failed check allocates nothing and captures no stack trace
+enum CustomerValidation {
+    VALID(null),
+    EMPTY_NAME("Customer name cannot be empty."),
+    INVALID_EMAIL("Invalid email."),
+    INVALID_PHONE("Invalid phone number."),
+    SHORT_ADDRESS("Address is too short."),
+    MALFORMED_RECORD("Malformed customer record."),
+    DUPLICATE_ID("A customer with this ID already exists."),
+    DUPLICATE_EMAIL("A customer with this email already exists.");
+
+    private final String message;
+
+    CustomerValidation(String message) {
+        this.message = message;
+    }
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
+
+final class CustomerValidator {
+    private CustomerValidator() {}
+
+    // Same rules the Customer constructor has always enforced, checked in a single pass over each field
+    public static CustomerValidation validate(String customerName, String email, String address, String phone) {
+        if (customerName == null || customerName.isEmpty()) return CustomerValidation.EMPTY_NAME;
+        if (!isPlausibleEmail(email)) return CustomerValidation.INVALID_EMAIL;
+        if (phone == null || phone.length() < 9) return CustomerValidation.INVALID_PHONE;
+        if (address == null || address.length() < 3) return CustomerValidation.SHORT_ADDRESS;
+        return CustomerValidation.VALID;
+    }
+
+    private static boolean isPlausibleEmail(String email) {
+        if (email == null) return false;
+        boolean at = false, dot = false;
+        for (int i = 0, n = email.length(); i < n && !(at && dot); i++) {
+            char c = email.charAt(i);
+            if (c == '@') at = true;
+            else if (c == '.') dot = true;
+        }
+        return at && dot;
+    }
+
+    public static String normalizeEmail(String email) {
+        String trimmed = email.trim();
+        for (int i = 0, n = trimmed.length(); i < n; i++) {
+            char c = trimmed.charAt(i);
+            if (c >= 'A' && c <= 'Z' || c > 127) return trimmed.toLowerCase(java.util.Locale.ROOT);
+        }
+        return trimmed;
+    }
+}
+
+// --- Customer Registry: unique by customerId and by normalized email ---
+class CustomerRegistry {
+    private final Map<String, Customer> byId = new ConcurrentHashMap<>();
+    private final Map<String, Customer> byEmail = new ConcurrentHashMap<>();
+
+    public CustomerValidation register(Customer customer) {
+        if (byId.putIfAbsent(customer.getCustomerId(), customer) != null) return CustomerValidation.DUPLICATE_ID;
+        if (byEmail.putIfAbsent(CustomerValidator.normalizeEmail(customer.getEmail()), customer) != null) {
+            byId.remove(customer.getCustomerId(), customer);
+            return CustomerValidation.DUPLICATE_EMAIL;
+        }
+        return CustomerValidation.VALID;
+    }
+
+    // Cheap pre-check so callers can reject a duplicate before building a Customer at all
+    public CustomerValidation checkAvailable(String customerId, String email) {
+        if (byId.containsKey(customerId)) return CustomerValidation.DUPLICATE_ID;
+        if (byEmail.containsKey(CustomerValidator.normalizeEmail(email))) return CustomerValidation.DUPLICATE_EMAIL;
+        return CustomerValidation.VALID;
+    }
+
+    public Customer findById(String customerId) {
+        return byId.get(customerId);
+    }
+
+    public Customer findByEmail(String email) {
+        return byEmail.get(CustomerValidator.normalizeEmail(email));
+    }
+
+    public Collection<Customer> all() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
+
+// --- Bulk import: one customer per line as id,name,email,address,phone ---
+// The address may itself contain commas; it is everything between the third and the last comma.
+class CustomerImporter {
+    private final CustomerRegistry registry;
+
+    public CustomerImporter(CustomerRegistry registry) {
+        this.registry = registry;
+    }
+
+    public ImportSummary importFile(Path file) {
+        try (Stream<String> lines = Files.lines(file)) {
+            return importLines(lines.parallel());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read customer file " + file, e);
+        }
+    }
+
+    public ImportSummary importLines(Stream<String> lines) {
+        AtomicLongArray counts = new AtomicLongArray(CustomerValidation.values().length);
+        lines.forEach(line -> counts.incrementAndGet(importLine(line).ordinal()));
+        return new ImportSummary(counts);
+    }
+
+    public CustomerValidation importLine(String line) {
+        int c1 = line.indexOf(',');
+        int c2 = c1 < 0 ? -1 : line.indexOf(',', c1 + 1);
+        int c3 = c2 < 0 ? -1 : line.indexOf(',', c2 + 1);
+        int last = line.lastIndexOf(',');
+        if (c3 < 0 || last <= c3) return CustomerValidation.MALFORMED_RECORD;
+
+        String id = line.substring(0, c1).trim();
+        String name = line.substring(c1 + 1, c2).trim();
+        String email = line.substring(c2 + 1, c3).trim();
+        String address = line.substring(c3 + 1, last).trim();
+        String phone = line.substring(last + 1).trim();
+
+        CustomerValidation result = CustomerValidator.validate(name, email, address, phone);
+        if (!result.isValid()) return result;
+        result = registry.checkAvailable(id, email);
+        if (!result.isValid()) return result;
+        return registry.register(new Customer(id, name, email, address, phone));
+    }
+}
+
+class ImportSummary {
+    private final AtomicLongArray counts;
+
+    ImportSummary(AtomicLongArray counts) {
+        this.counts = counts;
+    }
+
+    public long count(CustomerValidation result) {
+        return counts.get(result.ordinal());
+    }
+
+    public long imported() {
+        return count(CustomerValidation.VALID);
+    }
+
+    public long rejected() {
+        long total = 0;
+        for (CustomerValidation v : CustomerValidation.values()) {
+            if (!v.isValid()) total += count(v);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Imported: " + imported() + " | Rejected: " + rejected());
+        for (CustomerValidation v : CustomerValidation.values()) {
+            if (!v.isValid() && count(v) > 0) sb.append("\n  ").append(v.getMessage()).append(' ').append(count(v));
+        }
+        return sb.toString();
+    }
+}
+
+// Usage: java CustomerImportBenchmark [records] [file]
+// Writes a customer file with a few malformed, invalid and duplicate lines mixed in, then imports it into an
+// empty registry, reading the file the same way Main --import does.
+class CustomerImportBenchmark {
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path file = args.length > 1 ? Paths.get(args[1]) : Files.createTempFile("customers", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < records; i++) {
+                switch (i % 100) {
+                    case 0: out.write("malformed line " + i); break;
+                    case 1: out.write("c" + i + ",Name " + i + ",not-an-email," + i + " Main Street,0123456789"); break;
+                    case 2: out.write("c" + (i - 3) + ",Name " + i + ",dup" + i + "@example.com,1 Main St,0123456789"); break;
+                    default: out.write("c" + i + ",Name " + i + ",user" + i + "@example.com," + i + " Main Street, Town,0123456789");
+                }
+                out.newLine();
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass is warm-up
+            CustomerImporter importer = new CustomerImporter(new CustomerRegistry());
+            long start = System.nanoTime();
+            ImportSummary summary = importer.importFile(file);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (pass == 1) {
+                System.out.println(summary);
+                System.out.printf("%d records in %.2f s: %.1f million records per minute on %d CPUs%n", records,
+                        seconds, records / seconds * 60 / 1e6, Runtime.getRuntime().availableProcessors());
+            }
+        }
+        if (args.length < 2) Files.delete(file);
+    }
+}
@@ -0,0 +1,709 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// --- Json: just enough JSON for the API (objects, arrays, strings, numbers, booleans, null) ---
+// Malformed input, nesting deeper than MAX_DEPTH and non-finite numbers are rejected as 400 Bad Request.
+final class Json {
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos, depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) throw parser.error("Unexpected trailing content");
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) throw new ApiException(400, "Request body must be a JSON object.");
+        return (Map<String, Object>) value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (pos >= text.length()) throw error("Unexpected end of input");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        enter();
+        skipWhitespace();
+        if (peek() == '}') { pos++; depth--; return map; }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("Expected a field name");
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') throw error("Expected ':'");
+            pos++;
+            map.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == '}') { depth--; return map; }
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        enter();
+        skipWhitespace();
+        if (peek() == ']') { pos++; depth--; return list; }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == ']') { depth--; return list; }
+            if (c != ',') throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= text.length()) throw error("Unterminated string");
+            char c = text.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            char e = peek();
+            pos++;
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) throw error("Unterminated escape");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid escape");
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(e);
+            }
+        }
+    }
+
+    private Double readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+        if (start == pos) throw error("Unexpected character");
+        Double value;
+        try {
+            value = Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+        if (value.isInfinite()) throw error("Number out of range");
+        return value;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) throw error("Nested deeper than " + MAX_DEPTH + " levels");
+    }
+
+    private void expect(String word) {
+        if (!text.startsWith(word, pos)) throw error("Expected " + word);
+        pos += word.length();
+    }
+
+    private char peek() {
+        if (pos >= text.length()) throw error("Unexpected end of input");
+        return text.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private ApiException error(String message) {
+        return new ApiException(400, "Invalid JSON at position " + pos + ": " + message);
+    }
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    private static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            sb.append('"');
+            String s = (String) value;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') sb.append('\\').append(c);
+                else if (c == '\n') sb.append("\\n");
+                else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                else sb.append(c);
+            }
+            sb.append('"');
+        } else if (value instanceof Double || value instanceof Float) {
+            // JSON has no NaN or Infinity; a result that is not a number is reported as null
+            double d = ((Number) value).doubleValue();
+            sb.append(Double.isFinite(d) ? value.toString() : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                write(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object o : (Collection<?>) value) {
+                if (!first) sb.append(',');
+                first = false;
+                write(sb, o);
+            }
+            sb.append(']');
+        } else {
+            write(sb, value.toString());
+        }
+    }
+}
+
+// Thrown by handlers to produce a non-200 response with a JSON error body
+class ApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() { return status; }
+}
+
+// Returned by handlers whose success status is not 200: 201 when a resource was created, 422 for a rejected claim
+class ApiResponse {
+    private final int status;
+    private final Object body;
+
+    ApiResponse(int status, Object body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public int getStatus() { return status; }
+    public Object getBody() { return body; }
+}
+
+// --- Http Api: JSON front end over the three subsystems ---
+// One task per request. On JDK 21+ each request gets its own virtual thread; on older runtimes
+// (the Docker image is JDK 17) a cached platform-thread pool is used instead.
+class HttpApi {
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    // Budget in policy-scenarios: 1M scenarios over a 1,000-policy book, about 3.5s on one core. The run time
+    // grows with both, so a bigger book gets proportionally fewer scenarios. Small books are charged as 100
+    // policies, since each scenario has a fixed cost too.
+    private static final long MAX_SIMULATION_WORK = 1_000_000_000L;
+    private static final int MIN_SIMULATION_POLICIES = 100;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private HttpApi(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static HttpApi start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        ExecutorService executor = newRequestExecutor();
+        server.setExecutor(executor);
+        HttpApi api = new HttpApi(server, executor);
+        server.createContext("/", api::handle);
+        server.start();
+        return api;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "http-api");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = Arrays.stream(exchange.getRequestURI().getPath().split("/"))
+                .filter(s -> !s.isEmpty()).toArray(String[]::new);
+        try {
+            Object response = route(method, path, exchange);
+            if (response instanceof ApiResponse) send(exchange, ((ApiResponse) response).getStatus(),
+                    ((ApiResponse) response).getBody());
+            else send(exchange, 200, response);
+        } catch (ApiException e) {
+            send(exchange, e.getStatus(), error(e.getMessage()));
+        } catch (IllegalArgumentException | ClassCastException | DateTimeException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, error("Internal error: " + e));
+        } catch (StackOverflowError e) {
+            send(exchange, 500, error("Internal error: request too complex"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object route(String method, String[] path, HttpExchange exchange) throws IOException {
+        String resource = path.length == 0 ? "" : path[0];
+        switch (resource) {
+            case "policies":
+                if (path.length == 1 && method.equals("POST")) return created(createPolicy(body(exchange)));
+                if (path.length == 2 && method.equals("GET")) return policyView(findPolicy(path[1]));
+                if (path.length == 2 && path[1].equals("repricing") && method.equals("POST")) return reprice();
+                if (path.length == 3 && path[2].equals("claims") && method.equals("POST"))
+                    return submitClaim(findPolicy(path[1]), body(exchange));
+                break;
+            case "simulations":
+                if (path.length == 1 && method.equals("POST")) return simulate(body(exchange));
+                break;
+            case "stock":
+                if (path.length == 1 && method.equals("GET")) return stockView();
+                if (path.length == 1 && method.equals("POST")) return created(createStockItem(body(exchange)));
+                if (path.length == 3 && path[2].equals("adjustments") && method.equals("POST"))
+                    return adjustStock(path[1], body(exchange));
+                break;
+            case "catalog":
+                if (path.length == 1 && method.equals("GET")) return catalogView();
+                if (path.length == 1 && method.equals("POST")) return created(createCatalogItem(body(exchange)));
+                break;
+            case "promotions":
+                if (path.length == 1 && method.equals("GET")) return promotionsView();
+                if (path.length == 1 && method.equals("POST")) return created(addPromotions(body(exchange)));
+                break;
+            case "checkout":
+                if (path.length == 1 && method.equals("POST")) return created(checkout(body(exchange)));
+                break;
+            case "orders":
+                if (path.length == 2 && method.equals("GET")) return orderView(findOrder(path[1]));
+                break;
+            case "analytics":
+                if (path.length == 1 && method.equals("GET")) return analyticsView();
+                break;
+            case "metrics":
+                if (path.length == 1 && method.equals("GET")) return Metrics.snapshotText();
+                break;
+            default:
+                break;
+        }
+        throw new ApiException(404, "No route for " + method + " /" + String.join("/", path));
+    }
+
+    private static ApiResponse created(Object body) {
+        return new ApiResponse(201, body);
+    }
+
+    // --- Insurance ---
+
+    private Object createPolicy(Map<String, Object> body) {
+        Map<String, Object> v = object(body, "vehicle");
+        Map<String, Object> h = object(body, "holder");
+        Vehicle vehicle = new Vehicle(string(v, "type"), integer(v, "modelYear"), number(v, "engineCapacity"),
+                bool(v, "safetyChecked"), bool(v, "registrationValid"), bool(v, "inspectionValid"),
+                bool(v, "commercial"));
+        Person holder = new Person(string(h, "name"), integer(h, "age"), bool(h, "medicallyCleared"));
+        InsurancePolicy policy = MotorVehicleInsuranceSystem.createPolicy(string(body, "type"),
+                string(body, "policyId"), vehicle, holder, number(body, "coverageAmount"));
+        if (policy == null) throw new IllegalArgumentException("Invalid policy type.");
+        MotorVehicleInsuranceSystem.price(policy);
+        if (!MotorVehicleInsuranceSystem.book.add(policy))
+            throw new ApiException(409, "A policy with this ID already exists.");
+        return policyView(policy);
+    }
+
+    private Object reprice() {
+        long start = System.nanoTime();
+        int priced = MotorVehicleInsuranceSystem.book.repriceChanged();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("repriced", priced);
+        result.put("bookSize", MotorVehicleInsuranceSystem.book.size());
+        result.put("valuationDate", ValuationClock.date().toString());
+        result.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    private Object submitClaim(InsurancePolicy policy, Map<String, Object> body) {
+        LocalDate date = body.containsKey("date") ? LocalDate.parse(string(body, "date")) : LocalDate.now();
+        ClaimDecision decision = policy.submitClaim(number(body, "amount"), date);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("policyId", policy.getPolicyId());
+        result.put("approved", decision.isApproved());
+        result.put("flagged", decision.isFlagged());
+        result.put("verdict", decision.getVerdict().name());
+        result.put("reason", decision.getVerdict().getMessage());
+        return new ApiResponse(decision.isApproved() ? 200 : 422, result);
+    }
+
+    private Object simulate(Map<String, Object> body) {
+        double confidence = body.containsKey("confidence") ? number(body, "confidence") : 0.99;
+        long scenarios = (long) number(body, "scenarios");
+        LossSimulation simulation = LossSimulation.of(MotorVehicleInsuranceSystem.book.all(), LossModel.defaults());
+        long maxScenarios = MAX_SIMULATION_WORK / Math.max(MIN_SIMULATION_POLICIES, simulation.policyCount());
+        if (scenarios > maxScenarios)
+            throw new IllegalArgumentException("Scenarios cannot exceed " + maxScenarios + " for a book of "
+                    + simulation.policyCount() + " policies.");
+        SimulationResult result = simulation.run(scenarios, (long) number(body, "seed"), confidence);
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("scenarios", result.getScenarios());
+        view.put("confidence", result.getConfidence());
+        view.put("elapsedMillis", result.getElapsedMillis());
+        List<Object> types = new ArrayList<>();
+        for (int i = 0; i < result.typeCount(); i++) {
+            Map<String, Object> t = new LinkedHashMap<>();
+            t.put("type", result.typeName(i));
+            t.put("expectedLoss", result.expectedLoss(i));
+            t.put("valueAtRisk", result.valueAtRisk(i));
+            t.put("tailLoss", result.tailLoss(i));
+            types.add(t);
+        }
+        view.put("byType", types);
+        return view;
+    }
+
+    private InsurancePolicy findPolicy(String policyId) {
+        InsurancePolicy policy = MotorVehicleInsuranceSystem.book.find(policyId);
+        if (policy == null) throw new ApiException(404, "Policy not found: " + policyId);
+        return policy;
+    }
+
+    private Map<String, Object> policyView(InsurancePolicy policy) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("policyId", policy.getPolicyId());
+        view.put("type", policy.getClass().getSimpleName());
+        view.put("coverageAmount", policy.getCoverageAmount());
+        view.put("premium", policy.getPremiumAmount());
+        view.put("riskScore", policy.getRiskScore());
+        view.put("valid", policy.validatePolicy());
+        view.put("startDate", policy.getPolicyStartDate().toString());
+        view.put("endDate", policy.getPolicyEndDate().toString());
+        view.put("report", policy.generatePolicyReport());
+        return view;
+    }
+
+    // --- Stock ---
+
+    private Object createStockItem(Map<String, Object> body) {
+        String id = string(body, "itemId"), name = string(body, "itemName"), supplier = string(body, "supplier");
+        int qty = integer(body, "quantity");
+        double price = number(body, "price");
+        StockItem item;
+        switch (string(body, "kind").toLowerCase()) {
+            case "electronics":
+                ElectronicItem ei = new ElectronicItem(id, name, qty, price, supplier, integer(body, "warrantyMonths"),
+                        number(body, "discount"));
+                ei.applyDiscount();
+                item = ei;
+                break;
+            case "clothing":
+                item = new ClothingItem(id, name, qty, price, supplier, strings(body, "sizes"), strings(body, "colors"),
+                        bool(body, "hasDiscount"));
+                break;
+            case "grocery":
+                item = new GroceryItem(id, name, qty, price, supplier, date(body, "expirationDate"));
+                break;
+            case "furniture":
+                item = new FurnitureItem(id, name, qty, price, supplier, number(body, "weight"));
+                break;
+            case "perishable":
+                item = new PerishableItem(id, name, qty, price, supplier, date(body, "expirationDate"));
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid stock item kind.");
+        }
+        if (!StockManagementSystem.addItem(item))
+            throw new ApiException(409, "A stock item with this ID already exists.");
+        return stockItemView(item);
+    }
+
+    private Object adjustStock(String itemId, Map<String, Object> body) {
+        if (!StockManagementSystem.updateStock(itemId, integer(body, "quantity")))
+            throw new ApiException(404, "Stock item not found: " + itemId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("itemId", itemId);
+        result.put("updated", true);
+        return result;
+    }
+
+    private Object stockView() {
+        long start = System.nanoTime();
+        List<Object> view = new ArrayList<>();
+        synchronized (StockManagementSystem.items) {
+            for (StockItem item : StockManagementSystem.items) view.add(stockItemView(item));
+        }
+        Metrics.REPORT_GENERATION.record(start);
+        return view;
+    }
+
+    private Map<String, Object> stockItemView(StockItem item) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("itemId", item.itemId);
+        view.put("itemName", item.itemName);
+        view.put("category", item.category);
+        view.put("supplier", item.supplier);
+        view.put("quantityInStock", item.quantityInStock);
+        view.put("pricePerUnit", item.pricePerUnit);
+        view.put("stockValue", item.calculateStockValue());
+        return view;
+    }
+
+    // --- Shop ---
+
+    private Object createCatalogItem(Map<String, Object> body) {
+        ElectronicsItem item = new ElectronicsItem(string(body, "itemId"), string(body, "itemName"),
+                string(body, "description"), number(body, "price"), integer(body, "stock"),
+                integer(body, "warrantyMonths"));
+        if (OnlineShoppingSystem.catalog.putIfAbsent(item.itemId, item) != null)
+            throw new ApiException(409, "An item with this ID already exists.");
+        InventoryBus.shared().publishSync(item.itemId);
+        return catalogItemView(item);
+    }
+
+    private Object catalogView() {
+        List<Object> view = new ArrayList<>();
+        for (ShoppingItem item : OnlineShoppingSystem.catalog.values()) view.add(catalogItemView(item));
+        return view;
+    }
+
+    private Map<String, Object> catalogItemView(ShoppingItem item) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("itemId", item.itemId);
+        view.put("itemName", item.itemName);
+        view.put("category", item.getCategory());
+        view.put("price", item.price);
+        view.put("stockAvailable", item.stockAvailable);
+        return view;
+    }
+
+    // Body: {"promotions": [{"kind": "percentage", "promotionId": "P1", "category": "Electronics", "percent": 10}]}
+    private Object addPromotions(Map<String, Object> body) {
+        List<Promotion> added = new ArrayList<>();
+        for (Object o : (List<?>) field(body, "promotions")) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> p = (Map<String, Object>) o;
+            added.add(promotion(p));
+        }
+        if (!OnlineShoppingSystem.addPromotions(added))
+            throw new ApiException(409, "A promotion with this ID already exists.");
+        return promotionsView();
+    }
+
+    private static Promotion promotion(Map<String, Object> p) {
+        String id = string(p, "promotionId");
+        String itemId = p.containsKey("itemId") ? string(p, "itemId") : null;
+        String category = p.containsKey("category") ? string(p, "category") : null;
+        switch (string(p, "kind").toLowerCase()) {
+            case "percentage":
+                return new PercentageDiscount(id, itemId, category, number(p, "percent"));
+            case "fixed":
+                return new FixedDiscount(id, itemId, category, number(p, "amount"));
+            case "buyxgety":
+                return new BuyXGetYFree(id, itemId, category, integer(p, "buy"), integer(p, "free"));
+            case "bundle":
+                return new CategoryBundle(id, strings(p, "categories"), number(p, "amount"));
+            default:
+                throw new IllegalArgumentException("Invalid promotion kind.");
+        }
+    }
+
+    private Object promotionsView() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        List<String> ids = OnlineShoppingSystem.promotionIds();
+        view.put("count", ids.size());
+        view.put("promotionIds", ids);
+        return view;
+    }
+
+    private Object checkout(Map<String, Object> body) {
+        Map<String, Object> c = object(body, "customer");
+        String customerId = string(c, "customerId");
+        Customer customer = OnlineShoppingSystem.customers.findById(customerId);
+        if (customer == null) {
+            CustomerValidation result = CustomerValidator.validate(string(c, "name"), string(c, "email"),
+                    string(c, "address"), string(c, "phone"));
+            if (!result.isValid()) throw new IllegalArgumentException(result.getMessage());
+            customer = new Customer(customerId, string(c, "name"), string(c, "email"), string(c, "address"),
+                    string(c, "phone"));
+            result = OnlineShoppingSystem.customers.register(customer);
+            if (result == CustomerValidation.DUPLICATE_ID) customer = OnlineShoppingSystem.customers.findById(customerId);
+            else if (!result.isValid()) throw new ApiException(409, result.getMessage());
+        }
+        OrderRecord order = OnlineShoppingSystem.checkout(customer, strings(body, "items"),
+                string(body, "paymentMethod"));
+        return orderView(order);
+    }
+
+    private OrderRecord findOrder(String orderId) {
+        OrderRecord order = OnlineShoppingSystem.orders().findById(orderId);
+        if (order == null) throw new ApiException(404, "Order not found: " + orderId);
+        return order;
+    }
+
+    private Map<String, Object> orderView(OrderRecord order) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("orderId", order.getOrderId());
+        view.put("customerId", order.getCustomerId());
+        view.put("paymentId", order.getPaymentId());
+        view.put("amountPaid", order.getAmountPaid());
+        List<Object> lines = new ArrayList<>();
+        for (OrderLine line : order.getLines()) {
+            Map<String, Object> l = new LinkedHashMap<>();
+            l.put("itemId", line.getItemId());
+            l.put("itemName", line.getItemName());
+            l.put("unitPrice", line.getUnitPrice());
+            l.put("quantity", line.getQuantity());
+            lines.add(l);
+        }
+        view.put("lines", lines);
+        view.put("invoice", order.getInvoice());
+        return view;
+    }
+
+    private Object analyticsView() {
+        SalesSnapshot s = OnlineShoppingSystem.analytics.snapshot();
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("ordersSeen", s.getOrdersSeen());
+        view.put("revenueLastMinute", s.getRevenueLastMinute());
+        view.put("revenueLastHour", s.getRevenueLastHour());
+        view.put("distinctCustomers", s.getDistinctCustomers());
+        Map<String, Object> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : s.getTopItems()) top.put(e.getKey(), e.getValue());
+        view.put("topItems", top);
+        return view;
+    }
+
+    // --- Request/response plumbing ---
+
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && length.length() > 0 && Long.parseLong(length.trim()) > MAX_BODY_BYTES) throw tooLarge();
+        try (InputStream in = exchange.getRequestBody()) {
+            // Reads one byte past the limit, so a chunked body that is too large is caught without buffering it all
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) throw tooLarge();
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static ApiException tooLarge() {
+        return new ApiException(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes.");
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        boolean text = body instanceof String;
+        byte[] bytes = (text ? (String) body : Json.write(body)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", text ? "text/plain; charset=utf-8" : "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+
+    private static Object field(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value == null) throw new IllegalArgumentException("Missing field: " + name);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Map<String, Object> body, String name) {
+        return (Map<String, Object>) field(body, name);
+    }
+
+    private static String string(Map<String, Object> body, String name) {
+        return field(body, name).toString();
+    }
+
+    private static double number(Map<String, Object> body, String name) {
+        return ((Number) field(body, name)).doubleValue();
+    }
+
+    private static int integer(Map<String, Object> body, String name) {
+        double value = ((Number) field(body, name)).doubleValue();
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Field " + name + " must be a whole number in int range.");
+        return (int) value;
+    }
+
+    private static boolean bool(Map<String, Object> body, String name) {
+        return (Boolean) field(body, name);
+    }
+
+    private static List<String> strings(Map<String, Object> body, String name) {
+        List<String> result = new ArrayList<>();
+        for (Object o : (List<?>) field(body, name)) result.add(String.valueOf(o));
+        return result;
+    }
+
+    private static Date date(Map<String, Object> body, String name) {
+        return java.sql.Date.valueOf(string(body, name));
+    }
+}
@@ -0,0 +1,240 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+// Interface: IdGenerator
+interface IdGenerator {
+    long nextId();
+
+    default String nextIdText() {
+        return Base62.encode(nextId());
+    }
+}
+
+// --- Base-62 text form: at most 11 characters for a non-negative long ---
+final class Base62 {
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final int MAX_LENGTH = 11;
+
+    private Base62() {}
+
+    public static String encode(long value) {
+        if (value < 0) throw new IllegalArgumentException("Only non-negative ids can be encoded.");
+        char[] buf = new char[MAX_LENGTH];
+        int pos = MAX_LENGTH;
+        do {
+            buf[--pos] = DIGITS[(int) (value % 62)];
+            value /= 62;
+        } while (value != 0);
+        return new String(buf, pos, MAX_LENGTH - pos);
+    }
+
+    public static long decode(String text) {
+        long value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') digit = c - '0';
+            else if (c >= 'A' && c <= 'Z') digit = c - 'A' + 10;
+            else if (c >= 'a' && c <= 'z') digit = c - 'a' + 36;
+            else throw new IllegalArgumentException("Invalid base-62 id: " + text);
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+}
+
+// --- Snowflake-style generator ---
+// Layout (63 bits): 41 bits millis since EPOCH | 5 bits node | 5 bits lane | 12 bits sequence.
+// Each thread is pinned to a lane, so up to 32 threads never contend; beyond that, threads
+// sharing a lane coordinate with a single CAS. Nothing blocks and no entropy source is touched.
+class SnowflakeIdGenerator implements IdGenerator {
+    static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 12;
+    private static final int LANE_BITS = 5;
+    private static final int NODE_BITS = 5;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int LANES = 1 << LANE_BITS;
+    static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    // Padded so neighbouring lanes do not share a cache line
+    private static final class Lane extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("unused")
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static final AtomicInteger NEXT_LANE = new AtomicInteger();
+    private static final ThreadLocal<Integer> THREAD_LANE =
+            ThreadLocal.withInitial(() -> NEXT_LANE.getAndIncrement() & (LANES - 1));
+
+    private final long nodeBits;
+    private final Lane[] lanes = new Lane[LANES];
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE)
+            throw new IllegalArgumentException("Node id must be 0-" + MAX_NODE);
+        this.nodeBits = (long) nodeId << (LANE_BITS + SEQUENCE_BITS);
+        for (int i = 0; i < LANES; i++) lanes[i] = new Lane();
+    }
+
+    @Override
+    public long nextId() {
+        int lane = THREAD_LANE.get();
+        Lane state = lanes[lane];
+        long now = System.currentTimeMillis() - EPOCH;
+        while (true) {
+            // state packs (millis << SEQUENCE_BITS) | sequence
+            long current = state.get();
+            long lastMillis = current >>> SEQUENCE_BITS;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // Same millisecond, or the clock stepped back: keep counting on the last timestamp
+                next = current + 1;
+            } else {
+                // Sequence exhausted: borrow the next millisecond instead of spinning
+                next = (lastMillis + 1) << SEQUENCE_BITS;
+            }
+            if (state.compareAndSet(current, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + LANE_BITS + SEQUENCE_BITS)) | nodeBits
+                        | ((long) lane << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + LANE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+}
+
+// --- Ids: process-wide, pluggable id source used by carts, payments and orders ---
+final class Ids {
+    private static volatile IdGenerator generator = new SnowflakeIdGenerator(defaultNodeId());
+
+    private Ids() {}
+
+    public static String next() {
+        return generator.nextIdText();
+    }
+
+    public static IdGenerator getGenerator() {
+        return generator;
+    }
+
+    public static void setGenerator(IdGenerator newGenerator) {
+        if (newGenerator == null) throw new IllegalArgumentException("Generator cannot be null.");
+        generator = newGenerator;
+    }
+
+    // Node id comes from -Dnode.id or the NODE_ID environment variable, defaulting to 0. A value that is not
+    // a number, or is out of range, fails at startup: mapping it onto a valid id could give two nodes the same one.
+    private static int defaultNodeId() {
+        String value = System.getProperty("node.id", System.getenv("NODE_ID"));
+        if (value == null || value.trim().isEmpty()) return 0;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Node id must be a number 0-" + SnowflakeIdGenerator.MAX_NODE
+                    + ", not \"" + value + "\"", e);
+        }
+    }
+}
+
+// --- Benchmark: Snowflake ids vs UUID.randomUUID across 1-64 threads ---
+// Run with: java IdGeneratorBenchmark [millisPerRun]
+class IdGeneratorBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    interface Task {
+        int run();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        IdGenerator snowflake = new SnowflakeIdGenerator(0);
+
+        System.out.println("Threads | Snowflake text (ops/s) | Snowflake long (ops/s) | UUID.randomUUID (ops/s)");
+        for (int threads : THREAD_COUNTS) {
+            // Warm-up pass so every variant is compiled before it is measured
+            measure(threads, millis / 4, () -> snowflake.nextIdText().length());
+            measure(threads, millis / 4, () -> (int) snowflake.nextId());
+            measure(threads, millis / 4, () -> UUID.randomUUID().toString().length());
+
+            double text = measure(threads, millis, () -> snowflake.nextIdText().length());
+            double raw = measure(threads, millis, () -> (int) snowflake.nextId());
+            double uuid = measure(threads, millis, () -> UUID.randomUUID().toString().length());
+            System.out.printf("%7d | %22.0f | %22.0f | %23.0f%n", threads, text, raw, uuid);
+        }
+    }
+
+    private static double measure(int threads, long millis, Task task) throws InterruptedException {
+        long[] counts = new long[threads];
+        int[] sinks = new int[threads];
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                long ops = 0;
+                int sink = 0;
+                while ((ops & 1023) != 0 || System.nanoTime() < deadline) {
+                    sink += task.run();
+                    ops++;
+                }
+                counts[index] = ops;
+                sinks[index] = sink;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long elapsed = System.nanoTime() - start;
+        long total = 0;
+        for (long c : counts) total += c;
+        return total * 1e9 / elapsed;
+    }
+}
+
+// --- Self-test: per-thread ordering, uniqueness across threads and lanes, node id range (run by SelfTest) ---
+class IdGeneratorSelfTest {
+    static void run() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+
+        // One thread, enough ids to exhaust the per-millisecond sequence: strictly increasing throughout
+        long before = System.currentTimeMillis(), last = -1;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            SelfTest.check(id > last, "ids from one thread increase");
+            last = id;
+        }
+        SelfTest.check(SnowflakeIdGenerator.timestampOf(last) >= before, "timestamp decoded from the id");
+        SelfTest.check(Base62.decode(Base62.encode(last)) == last, "base-62 round trip");
+
+        // More threads than lanes, so some lanes are shared: still no duplicates
+        int threads = 40, perThread = 5_000;
+        long[][] ids = new long[threads][perThread];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = ids[t];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < out.length; i++) out[i] = generator.nextId();
+            });
+            workers[t].start();
+        }
+        Set<Long> seen = new HashSet<>();
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            for (long id : ids[t]) seen.add(id);
+        }
+        SelfTest.check(seen.size() == threads * perThread, "ids unique across threads");
+
+        SelfTest.checkRejected(() -> new SnowflakeIdGenerator(-1), "negative node id");
+        SelfTest.checkRejected(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1), "node id above 31");
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// --- Inventory Ring Buffer: bounded, lock-free, many producers and one consumer ---
+// Each slot carries a sequence number (Vyukov-style): a producer may fill slot i at position p once its
+// sequence equals p, and publishes by setting it to p + 1; the consumer frees it by setting p + capacity.
+class InventoryRingBuffer {
+    static final int RESERVATION = 0, SYNC = 1, RESYNC = 2;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] kinds, quantities;
+    private final String[] itemIds;
+    private final long[] publishedAt;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    public InventoryRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two.");
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.kinds = new int[capacity];
+        this.quantities = new int[capacity];
+        this.itemIds = new String[capacity];
+        this.publishedAt = new long[capacity];
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    // Returns false when the buffer is full
+    public boolean offer(int kind, String itemId, int quantity) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (!tail.compareAndSet(position, position + 1)) continue;
+                kinds[index] = kind;
+                itemIds[index] = itemId;
+                quantities[index] = quantity;
+                publishedAt[index] = System.nanoTime();
+                sequences.set(index, position + 1);
+                return true;
+            }
+            if (sequence < position) return false;
+        }
+    }
+
+    interface Handler {
+        void onEvent(int kind, String itemId, int quantity, long publishedAtNanos);
+    }
+
+    // True once every event published so far has been handled: the consumer frees slots in order, so it is
+    // enough that the most recently claimed slot has been freed (or reused by a later position)
+    public boolean isDrained() {
+        long position = tail.get() - 1;
+        return position < 0 || sequences.get((int) (position & mask)) >= position + mask + 1;
+    }
+
+    // Consumer side only
+    public boolean hasPending() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    // Consumer side only: hands up to maxBatch published events to the handler and frees their slots
+    public int drain(Handler handler, int maxBatch) {
+        int drained = 0;
+        while (drained < maxBatch) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) break;
+            handler.onEvent(kinds[index], itemIds[index], quantities[index], publishedAt[index]);
+            itemIds[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+}
+
+// --- Inventory Bus: keeps the shop's available-to-sell in step with the warehouse ledger ---
+// The warehouse ledger (StockItem.quantityInStock) is the single source of truth. Checkouts publish
+// reservations, which are taken off the ledger and then settled on the shop side; any ledger change or new
+// listing publishes a sync, which sets ShoppingItem.stockAvailable from the ledger's current count rather
+// than adding a delta, so events can never push one side's figure into the other's.
+// Reservations for an item the warehouse does not stock yet are held and applied once it does.
+class InventoryBus {
+    private static final int CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 256;
+    // A publisher backs off for at most about a second before giving up on a full buffer
+    private static final int PUBLISH_ATTEMPTS = 20;
+    private static final InventoryBus SHARED = new InventoryBus();
+
+    private final InventoryRingBuffer ring = new InventoryRingBuffer(CAPACITY);
+    private final Counter published = Metrics.counter("inventory.events_published");
+    private final Counter held = Metrics.counter("inventory.events_held");
+    private final Counter dropped = Metrics.counter("inventory.events_dropped");
+    private final Counter failed = Metrics.counter("inventory.events_failed");
+    private final Timer propagation = Metrics.timer("inventory.propagation");
+    // Reserved units per item the warehouse has no ledger entry for yet; written by the consumer thread only,
+    // read by the snapshot writer
+    private final Map<String, Integer> heldReservations = new ConcurrentHashMap<>();
+    private final Thread consumer;
+    private volatile boolean consumerParked;
+
+    private InventoryBus() {
+        consumer = new Thread(this::consumeLoop, "inventory-bus");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    public static InventoryBus shared() {
+        return SHARED;
+    }
+
+    public boolean publishReservation(String itemId, int quantity) {
+        return publish(InventoryRingBuffer.RESERVATION, itemId, quantity);
+    }
+
+    // The item's ledger count changed, or it was just listed in the shop
+    public boolean publishSync(String itemId) {
+        return publish(InventoryRingBuffer.SYNC, itemId, 0);
+    }
+
+    // Brings every shop listing back in step with the ledger, e.g. after a restore
+    public boolean publishResync() {
+        return publish(InventoryRingBuffer.RESYNC, null, 0);
+    }
+
+    // Waits for the consumer to apply everything already published, so the ledger includes every recorded
+    // order before it is saved; returns false if it did not catch up in time
+    public boolean awaitDrained(long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (!ring.isDrained()) {
+            if (System.nanoTime() > deadline) return false;
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    public Map<String, Integer> heldReservations() {
+        return new HashMap<>(heldReservations);
+    }
+
+    // Applies back-pressure when the consumer falls a full buffer behind, backing off from yields to parks of
+    // up to 100ms; returns false, and counts the event as dropped, if the buffer stays full throughout
+    private boolean publish(int kind, String itemId, int quantity) {
+        for (int attempt = 0; !ring.offer(kind, itemId, quantity); attempt++) {
+            if (attempt == PUBLISH_ATTEMPTS) {
+                dropped.increment();
+                System.out.println("Inventory bus full; dropped event for item " + itemId);
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            if (attempt < 4) Thread.yield();
+            else LockSupport.parkNanos(Math.min(100_000_000L, 1_000_000L << (attempt - 4)));
+        }
+        published.increment();
+        if (consumerParked) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    private void consumeLoop() {
+        InventoryRingBuffer.Handler handler = this::applySafely;
+        int idle = 0;
+        while (true) {
+            if (ring.drain(handler, MAX_BATCH) > 0) {
+                idle = 0;
+            } else if (++idle < 100) {
+                Thread.onSpinWait();
+            } else {
+                // Announce the park, then re-check so a publish racing with it is not missed
+                consumerParked = true;
+                if (!ring.hasPending()) LockSupport.parkNanos(1_000_000);
+                consumerParked = false;
+            }
+        }
+    }
+
+    // One bad event must not stop the consumer, or every later event would pile up behind it
+    private void applySafely(int kind, String itemId, int quantity, long publishedAtNanos) {
+        try {
+            apply(kind, itemId, quantity);
+            propagation.record(publishedAtNanos);
+        } catch (RuntimeException e) {
+            failed.increment();
+            System.out.println("Error applying inventory event for item " + itemId + ": " + e);
+        }
+    }
+
+    private void apply(int kind, String itemId, int quantity) {
+        if (kind == InventoryRingBuffer.RESYNC) {
+            for (String id : OnlineShoppingSystem.catalog.keySet()) sync(id);
+            return;
+        }
+        if (kind == InventoryRingBuffer.RESERVATION) {
+            StockItem stock = StockManagementSystem.itemsById.get(itemId);
+            if (stock == null) {
+                held.increment();
+                heldReservations.merge(itemId, quantity, Integer::sum);
+                return;
+            }
+            synchronized (stock) {
+                stock.takeStock(quantity);
+            }
+            ShoppingItem listing = OnlineShoppingSystem.catalog.get(itemId);
+            if (listing != null) listing.settle(quantity);
+        }
+        sync(itemId);
+    }
+
+    // Applies any held reservations now that the ledger has the item, then copies its count to the listing
+    private void sync(String itemId) {
+        StockItem stock = StockManagementSystem.itemsById.get(itemId);
+        if (stock == null) return;
+        ShoppingItem listing = OnlineShoppingSystem.catalog.get(itemId);
+        Integer reserved = heldReservations.remove(itemId);
+        int quantity;
+        synchronized (stock) {
+            if (reserved != null) stock.takeStock(reserved);
+            quantity = stock.quantityInStock;
+        }
+        if (listing == null) return;
+        if (reserved != null) listing.settle(reserved);
+        listing.syncAvailable(quantity);
+    }
+}
+
+// --- Self-test: ring buffer order, capacity, wrap-around and concurrent producers (run by SelfTest) ---
+class InventoryRingBufferSelfTest {
+    static void run() throws InterruptedException {
+        SelfTest.checkRejected(() -> new InventoryRingBuffer(12), "capacity that is not a power of two");
+
+        InventoryRingBuffer ring = new InventoryRingBuffer(8);
+        SelfTest.check(ring.isDrained() && !ring.hasPending(), "new buffer is drained");
+        List<String> seen = new ArrayList<>();
+        InventoryRingBuffer.Handler record = (kind, itemId, quantity, publishedAt) -> seen.add(itemId + ":" + quantity);
+        // Three rounds through eight slots, so every slot is reused
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) SelfTest.check(ring.offer(InventoryRingBuffer.RESERVATION, "I" + i, round), "offer");
+            SelfTest.check(!ring.offer(InventoryRingBuffer.SYNC, "extra", 0), "full buffer refuses an offer");
+            SelfTest.check(!ring.isDrained(), "full buffer is not drained");
+            seen.clear();
+            SelfTest.check(ring.drain(record, 3) == 3, "drain stops at the batch size");
+            SelfTest.check(!ring.isDrained() && ring.hasPending(), "partly drained");
+            SelfTest.check(ring.drain(record, 100) == 5, "drain takes the rest");
+            SelfTest.check(ring.isDrained(), "drained after the last event");
+            SelfTest.check(seen.get(0).equals("I0:" + round) && seen.get(7).equals("I7:" + round), "events in FIFO order");
+        }
+
+        // Four producers against one consumer through a small buffer: nothing lost, each producer's order kept
+        InventoryRingBuffer shared = new InventoryRingBuffer(64);
+        int producers = 4, perProducer = 20_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            String itemId = "P" + p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!shared.offer(InventoryRingBuffer.RESERVATION, itemId, i)) Thread.yield();
+                }
+            });
+            threads[p].start();
+        }
+        int[] next = new int[producers];
+        boolean[] ordered = { true };
+        InventoryRingBuffer.Handler check = (kind, itemId, quantity, publishedAt) -> {
+            int p = itemId.charAt(1) - '0';
+            if (quantity != next[p]++) ordered[0] = false;
+        };
+        int received = 0;
+        while (received < producers * perProducer) {
+            int n = shared.drain(check, 256);
+            if (n == 0) Thread.yield();
+            received += n;
+        }
+        for (Thread t : threads) t.join();
+        SelfTest.check(ordered[0], "each producer's events arrive in order");
+        SelfTest.check(shared.isDrained() && received == producers * perProducer, "every event received once");
+    }
+}
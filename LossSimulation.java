@@ -0,0 +1,284 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// --- Loss Model: claim frequency and severity assumptions for one policy type ---
+// Claim counts are Poisson(claimsPerYear); each claim is lognormal with the given median as a fraction
+// of the policy's coverage. As in every processClaim, a claim above coverage is rejected and pays nothing.
+class LossModel {
+    final String policyType;
+    final double claimsPerYear, medianSeverity, severitySigma;
+
+    public LossModel(String policyType, double claimsPerYear, double medianSeverity, double severitySigma) {
+        this.policyType = policyType;
+        this.claimsPerYear = claimsPerYear;
+        this.medianSeverity = medianSeverity;
+        this.severitySigma = severitySigma;
+    }
+
+    // Indexed by LossSimulation type code
+    public static LossModel[] defaults() {
+        return new LossModel[] {
+            new LossModel("Comprehensive", 0.08, 0.06, 1.0),
+            new LossModel("ThirdParty", 0.05, 0.10, 1.2),
+            new LossModel("Collision", 0.10, 0.08, 0.9),
+            new LossModel("Liability", 0.03, 0.15, 1.4),
+            new LossModel("RoadsideAssistance", 0.30, 0.01, 0.5),
+        };
+    }
+}
+
+// --- Loss Histogram: log-spaced bins (~0.4% wide) so quantiles need no per-scenario storage ---
+class LossHistogram {
+    static final int BINS = 8192;
+    private static final double LOG_MAX = Math.log(1e13);
+    private static final double BINS_PER_LOG = (BINS - 2) / LOG_MAX;
+
+    final long[] counts = new long[BINS];
+    final double[] sums = new double[BINS];
+    long scenarios;
+    double total;
+
+    void add(double loss) {
+        int bin = loss < 1 ? 0 : Math.min(BINS - 1, 1 + (int) (Math.log(loss) * BINS_PER_LOG));
+        counts[bin]++;
+        sums[bin] += loss;
+        scenarios++;
+        total += loss;
+    }
+
+    void merge(LossHistogram other) {
+        for (int i = 0; i < BINS; i++) {
+            counts[i] += other.counts[i];
+            sums[i] += other.sums[i];
+        }
+        scenarios += other.scenarios;
+        total += other.total;
+    }
+
+    double mean() {
+        return scenarios == 0 ? 0 : total / scenarios;
+    }
+
+    // Value-at-risk: the smallest loss not exceeded in `confidence` of scenarios
+    double valueAtRisk(double confidence) {
+        int bin = quantileBin(confidence);
+        return bin == 0 ? 0 : Math.exp((bin - 1) / BINS_PER_LOG);
+    }
+
+    // Tail loss (TVaR): the average loss in the scenarios at or beyond the VaR bin
+    double tailLoss(double confidence) {
+        int bin = quantileBin(confidence);
+        long count = 0;
+        double sum = 0;
+        for (int i = bin; i < BINS; i++) {
+            count += counts[i];
+            sum += sums[i];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    private int quantileBin(double confidence) {
+        long rank = (long) Math.ceil(confidence * scenarios);
+        long seen = 0;
+        for (int i = 0; i < BINS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i;
+        }
+        return BINS - 1;
+    }
+}
+
+class SimulationResult {
+    private final String[] types;
+    private final LossHistogram[] histograms;
+    private final long scenarios, elapsedMillis;
+    private final double confidence;
+
+    SimulationResult(String[] types, LossHistogram[] histograms, long scenarios, double confidence, long elapsedMillis) {
+        this.types = types;
+        this.histograms = histograms;
+        this.scenarios = scenarios;
+        this.confidence = confidence;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getScenarios() { return scenarios; }
+    public double getConfidence() { return confidence; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public int typeCount() { return types.length; }
+    public String typeName(int i) { return types[i]; }
+    public double expectedLoss(int i) { return histograms[i].mean(); }
+    public double valueAtRisk(int i) { return histograms[i].valueAtRisk(confidence); }
+    public double tailLoss(int i) { return histograms[i].tailLoss(confidence); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("Loss Simulation: %d scenarios, %.1f%% confidence, %d ms%n",
+                scenarios, confidence * 100, elapsedMillis));
+        for (int i = 0; i < types.length; i++) {
+            sb.append(String.format("%-20s expected=%.2f VaR=%.2f tail=%.2f%n", types[i], expectedLoss(i),
+                    valueAtRisk(i), tailLoss(i)));
+        }
+        return sb.toString();
+    }
+}
+
+// --- Loss Simulation: parallel Monte Carlo over the policy book ---
+// Scenarios are cut into fixed-size chunks and every chunk seeds its own SplittableRandom from
+// (seed, chunk index), so a run is reproducible for a given seed whatever the thread count.
+// Within a scenario, claims for a type are drawn as one Poisson count over the whole type group and
+// assigned to uniformly chosen policies, which is equivalent to per-policy draws but costs
+// O(claims) rather than O(policies).
+class LossSimulation {
+    static final int COMPREHENSIVE = 0, THIRD_PARTY = 1, COLLISION = 2, LIABILITY = 3, ROADSIDE = 4;
+    private static final int TYPES = 5;
+    private static final int CHUNK = 4096;
+
+    private final double[][] coverageByType;
+    private final LossModel[] models;
+
+    private LossSimulation(double[][] coverageByType, LossModel[] models) {
+        this.coverageByType = coverageByType;
+        this.models = models;
+    }
+
+    // Flattens the book into one primitive coverage array per policy type
+    public static LossSimulation of(Collection<InsurancePolicy> policies, LossModel[] models) {
+        int[] sizes = new int[TYPES];
+        double[][] coverage = new double[TYPES][policies.size()];
+        for (InsurancePolicy policy : policies) {
+            int type = typeCode(policy);
+            coverage[type][sizes[type]++] = policy.getCoverageAmount();
+        }
+        for (int t = 0; t < TYPES; t++) coverage[t] = Arrays.copyOf(coverage[t], sizes[t]);
+        return new LossSimulation(coverage, models);
+    }
+
+    // Each scenario draws claims for every policy, so the cost of a run grows with scenarios x policies
+    public int policyCount() {
+        int count = 0;
+        for (double[] coverage : coverageByType) count += coverage.length;
+        return count;
+    }
+
+    static int typeCode(InsurancePolicy policy) {
+        if (policy instanceof ComprehensivePolicy) return COMPREHENSIVE;
+        if (policy instanceof ThirdPartyPolicy) return THIRD_PARTY;
+        if (policy instanceof CollisionPolicy) return COLLISION;
+        if (policy instanceof LiabilityPolicy) return LIABILITY;
+        return ROADSIDE;
+    }
+
+    public SimulationResult run(long scenarios, long seed, double confidence) {
+        if (scenarios <= 0) throw new IllegalArgumentException("Scenarios must be positive.");
+        if (confidence <= 0 || confidence >= 1) throw new IllegalArgumentException("Confidence must be between 0 and 1.");
+        long start = System.currentTimeMillis();
+        long chunks = (scenarios + CHUNK - 1) / CHUNK;
+        LossHistogram[] merged = ForkJoinPool.commonPool().invoke(new ChunkTask(0, chunks, scenarios, seed));
+        String[] names = new String[TYPES + 1];
+        for (int t = 0; t < TYPES; t++) names[t] = models[t].policyType;
+        names[TYPES] = "Portfolio";
+        return new SimulationResult(names, merged, scenarios, confidence, System.currentTimeMillis() - start);
+    }
+
+    private final class ChunkTask extends RecursiveTask<LossHistogram[]> {
+        private static final long serialVersionUID = 1L;
+        private static final long LEAF_CHUNKS = 32;
+        private final long from, to, scenarios, seed;
+
+        ChunkTask(long from, long to, long scenarios, long seed) {
+            this.from = from;
+            this.to = to;
+            this.scenarios = scenarios;
+            this.seed = seed;
+        }
+
+        @Override
+        protected LossHistogram[] compute() {
+            if (to - from <= LEAF_CHUNKS) return simulateChunks(from, to, scenarios, seed);
+            long mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(from, mid, scenarios, seed);
+            left.fork();
+            LossHistogram[] right = new ChunkTask(mid, to, scenarios, seed).compute();
+            LossHistogram[] result = left.join();
+            // Merge order is fixed by the split, so floating-point sums are reproducible too
+            for (int t = 0; t <= TYPES; t++) result[t].merge(right[t]);
+            return result;
+        }
+    }
+
+    private LossHistogram[] simulateChunks(long fromChunk, long toChunk, long scenarios, long seed) {
+        LossHistogram[] histograms = new LossHistogram[TYPES + 1];
+        for (int t = 0; t <= TYPES; t++) histograms[t] = new LossHistogram();
+        double[] lambda = new double[TYPES], mu = new double[TYPES], sigma = new double[TYPES];
+        for (int t = 0; t < TYPES; t++) {
+            lambda[t] = models[t].claimsPerYear * coverageByType[t].length;
+            mu[t] = Math.log(models[t].medianSeverity);
+            sigma[t] = models[t].severitySigma;
+        }
+
+        for (long chunk = fromChunk; chunk < toChunk; chunk++) {
+            SplittableRandom rng = new SplittableRandom(Hashing.mix64(seed ^ Hashing.mix64(chunk + 1)));
+            long end = Math.min(scenarios, (chunk + 1) * CHUNK);
+            for (long s = chunk * CHUNK; s < end; s++) {
+                double portfolio = 0;
+                for (int t = 0; t < TYPES; t++) {
+                    double[] coverage = coverageByType[t];
+                    double loss = 0;
+                    if (coverage.length > 0) {
+                        int claims = poisson(rng, lambda[t]);
+                        for (int c = 0; c < claims; c++) {
+                            double limit = coverage[rng.nextInt(coverage.length)];
+                            double amount = limit * Math.exp(mu[t] + sigma[t] * rng.nextGaussian());
+                            if (amount <= limit) loss += amount;
+                        }
+                    }
+                    histograms[t].add(loss);
+                    portfolio += loss;
+                }
+                histograms[TYPES].add(portfolio);
+            }
+        }
+        return histograms;
+    }
+
+    // Knuth's multiplication method for small means; normal approximation once it is accurate enough
+    private static int poisson(SplittableRandom rng, double mean) {
+        if (mean <= 0) return 0;
+        if (mean > 40) return Math.max(0, (int) Math.round(mean + Math.sqrt(mean) * rng.nextGaussian()));
+        double limit = Math.exp(-mean), product = rng.nextDouble();
+        int n = 0;
+        while (product > limit) {
+            product *= rng.nextDouble();
+            n++;
+        }
+        return n;
+    }
+}
+
+// Usage: java LossSimulationBenchmark [policies] [scenarios] [seed]
+// Builds a synthetic book spread evenly over the five policy types and times one simulation run.
+class LossSimulationBenchmark {
+    public static void main(String[] args) {
+        int policies = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long scenarios = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000L;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        String[] types = { "comprehensive", "thirdparty", "collision", "liability", "roadsideassistance" };
+        List<InsurancePolicy> book = new ArrayList<>(policies);
+        for (int i = 0; i < policies; i++) {
+            Vehicle vehicle = new Vehicle("Car", 2015, 1500, true, true, true, false);
+            book.add(MotorVehicleInsuranceSystem.createPolicy(types[i % types.length], "B" + i, vehicle,
+                    new Person("Holder " + i, 30, true), 5000 + i * 20));
+        }
+        LossSimulation simulation = LossSimulation.of(book, LossModel.defaults());
+
+        // Warm-up run so the timed run measures compiled code
+        simulation.run(Math.min(scenarios, 200_000), seed, 0.99);
+        SimulationResult result = simulation.run(scenarios, seed, 0.99);
+        System.out.print(result);
+        System.out.printf("%d policies, %d scenarios on %d threads: %.0f scenarios/s%n", policies, scenarios,
+                ForkJoinPool.commonPool().getParallelism(), scenarios * 1000.0 / Math.max(1, result.getElapsedMillis()));
+    }
+}
@@ -1,8 +1,46 @@
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
 
 public class Main {
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+    public static void main(String[] args) throws IOException {
+        // Class-data sharing training run: java -XX:ArchiveClassesAtExit=app.jsa Main --warmup
+        if (args.length > 0 && args[0].equals("--warmup")) {
+            warmUp();
+            return;
+        }
+
+        // Resolve the node id now so a bad -Dnode.id / NODE_ID stops the process before it takes any orders
+        Ids.getGenerator();
+
+        // Subsystems restore their part of the snapshot on first use; whatever was used is saved again at exit
+        StateSnapshot.saveOnShutdown();
+
+        // Bulk customer import into the shop's registry, saved with the rest of the snapshot at exit:
+        // java Main --import customers.csv
+        if (args.length > 1 && args[0].equals("--import")) {
+            long start = System.nanoTime();
+            ImportSummary summary = new CustomerImporter(OnlineShoppingSystem.customers).importFile(Paths.get(args[1]));
+            System.out.println(summary);
+            System.out.println("Took " + (System.nanoTime() - start) / 1_000_000 + " ms; "
+                    + OnlineShoppingSystem.customers.size() + " customers registered.");
+            return;
+        }
+
+        // Server-only mode: java Main --http [port]
+        if (args.length > 0 && args[0].equals("--http")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            HttpApi.start(port);
+            System.out.println("HTTP API listening on port " + port);
+            StateSnapshot.prewarm();
+            return;
+        }
+
+        ConsoleInput input = ConsoleInput.stdin();
+        HttpApi api = null;
         boolean running = true;
 
         while (running) {
@@ -10,20 +48,49 @@ public class Main {
             System.out.println("1. Motor Vehicle Insurance System");
             System.out.println("2. Stock Management System");
             System.out.println("3. Online Shopping System");
+            System.out.println("4. View Metrics Snapshot");
+            System.out.println("5. Export Metrics to File");
+            System.out.println("6. Start HTTP API");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
 
-            String choice = scanner.nextLine();
+            String choice = input.nextLine();
 
             switch (choice) {
                 case "1":
-                    new MotorVehicleInsuranceSystem().start();
+                    MotorVehicleInsuranceSystem.start();
                     break;
                 case "2":
-                    new StockManagementSystem().start();
+                    StockManagementSystem.start();
                     break;
                 case "3":
-                    new OnlineShoppingSystem().start();
+                    OnlineShoppingSystem.start();
+                    break;
+                case "4":
+                    System.out.println(Metrics.snapshotText());
+                    break;
+                case "5":
+                    System.out.print("File name: ");
+                    String fileName = input.nextLine();
+                    try {
+                        Metrics.export(Paths.get(fileName));
+                        System.out.println("Metrics written to " + fileName);
+                    } catch (IOException e) {
+                        System.out.println("Error: " + e.getMessage());
+                    }
+                    break;
+                case "6":
+                    if (api != null) {
+                        System.out.println("HTTP API already running on port " + api.getPort());
+                        break;
+                    }
+                    System.out.print("Port: ");
+                    try {
+                        api = HttpApi.start(Integer.parseInt(input.nextLine().trim()));
+                        System.out.println("HTTP API listening on port " + api.getPort());
+                    } catch (IOException | IllegalArgumentException e) {
+                        System.out.println("Error: " + e.getMessage());
+                    }
                     break;
                 case "0":
                     running = false;
@@ -36,6 +103,53 @@ public class Main {
             System.out.println(); 
         }
 
-        scanner.close();
+        if (api != null) api.stop();
+    }
+
+    // Loads the classes a normal run uses, against a throwaway snapshot and without touching the order journal
+    private static void warmUp() throws IOException {
+        Path snapshot = Files.createTempFile("warmup", ".snapshot");
+        Files.delete(snapshot);
+        System.setProperty("snapshot.file", snapshot.toString());
+        try {
+            String[] types = { "comprehensive", "thirdparty", "collision", "liability", "roadsideassistance" };
+            for (String type : types) {
+                Vehicle vehicle = new Vehicle("Car", 2020, 1600, true, true, true, false);
+                InsurancePolicy policy = MotorVehicleInsuranceSystem.createPolicy(type, "warmup-" + type, vehicle,
+                        new Person("Warm Up", 40, true), 10000);
+                MotorVehicleInsuranceSystem.book.add(policy);
+                MotorVehicleInsuranceSystem.price(policy);
+                policy.validatePolicy();
+                policy.generatePolicyReport();
+                policy.submitClaim(100, LocalDate.now());
+            }
+            MotorVehicleInsuranceSystem.book.repriceChanged();
+
+            StockManagementSystem.addItem(new ElectronicItem("warmup-1", "Warm Up", 1, 1, "Supplier", 12, 0));
+            StockManagementSystem.addItem(new ClothingItem("warmup-2", "Warm Up", 1, 1, "Supplier",
+                    Arrays.asList("M"), Arrays.asList("Red"), false));
+            StockManagementSystem.addItem(new GroceryItem("warmup-3", "Warm Up", 1, 1, "Supplier",
+                    java.sql.Date.valueOf(LocalDate.now())));
+            StockManagementSystem.addItem(new FurnitureItem("warmup-4", "Warm Up", 1, 1, "Supplier", 10));
+            StockManagementSystem.addItem(new PerishableItem("warmup-5", "Warm Up", 1, 1, "Supplier",
+                    java.sql.Date.valueOf(LocalDate.now())));
+            StockManagementSystem.updateStock("warmup-1", 1);
+
+            ElectronicsItem item = new ElectronicsItem("warmup-1", "Warm Up", "Warm Up", 10, 5, 12);
+            OnlineShoppingSystem.catalog.put(item.itemId, item);
+            Customer customer = new Customer("warmup", "Warm Up", "warm@up.example", "1 Warm Up Street", "0123456789");
+            OnlineShoppingSystem.customers.register(customer);
+            customer.getCart().applyPromotions(OnlineShoppingSystem.promotions);
+            item.addToCart(customer);
+            item.buildInvoice(customer);
+
+            HttpApi api = HttpApi.start(0);
+            api.stop();
+            Metrics.snapshotText();
+
+            StateSnapshot.save();
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
     }
 }
@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// --- JFR event emitted for every timed operation ---
+// Off by default because it fires per call; enable it for a run with
+// java -XX:StartFlightRecording=settings=operations.jfc,filename=run.jfr Main
+@Name("victoire.Operation")
+@Label("Operation")
+@Category("Application")
+@Description("A timed hot-path operation in one of the subsystems")
+@StackTrace(false)
+@Enabled(false)
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
+
+// --- Counter: striped, so concurrent increments do not fight over one cache line ---
+class Counter {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    public String getName() { return name; }
+}
+
+// --- Latency Histogram: HDR-style log-linear buckets in a fixed set of striped recorders ---
+// Values below 32ns get exact buckets; above that each power of two is split into 16 buckets,
+// which bounds the relative error of any reported percentile to about 6%.
+// Threads are hashed by id onto a fixed number of stripes (about two per CPU), so memory does not grow with
+// the number of threads that ever recorded, e.g. one per HTTP request. Snapshots merge the stripes.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+    // Trailing slots of each stripe hold the running sum and max
+    private static final int SUM = BUCKETS, MAX = BUCKETS + 1;
+    private static final int STRIPES =
+            Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1));
+
+    private final String name;
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+    LatencyHistogram(String name) {
+        this.name = name;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new AtomicLongArray(BUCKETS + 2);
+    }
+
+    public String getName() { return name; }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        AtomicLongArray counts = stripes[(int) Hashing.mix64(Thread.currentThread().getId()) & (STRIPES - 1)];
+        counts.getAndIncrement(indexOf(nanos));
+        counts.getAndAdd(SUM, nanos);
+        long max;
+        while (nanos > (max = counts.get(MAX)) && !counts.compareAndSet(MAX, max, nanos)) {
+            // another thread raised the max first; re-check against the new value
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    // Reads the stripes without locking; a snapshot may miss records made while it runs
+    public HistogramSnapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long count = 0, sum = 0, max = 0;
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = counts.get(i);
+                merged[i] += c;
+                count += c;
+            }
+            sum += counts.get(SUM);
+            max = Math.max(max, counts.get(MAX));
+        }
+        return new HistogramSnapshot(name, merged, count, sum, max);
+    }
+}
+
+class HistogramSnapshot {
+    private final String name;
+    private final long[] buckets;
+    private final long count, sum, max;
+
+    HistogramSnapshot(String name, long[] buckets, long count, long sum, long max) {
+        this.name = name;
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public String getName() { return name; }
+    public long getCount() { return count; }
+    public long getMax() { return max; }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(p / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(LatencyHistogram.lowerBoundOf(i), max);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d mean=%.0fns p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns", name, count,
+                getMean(), percentile(50), percentile(90), percentile(99), percentile(99.9), max);
+    }
+}
+
+// --- Timer: a latency histogram plus a JFR event per operation ---
+class Timer {
+    private final LatencyHistogram histogram;
+
+    Timer(String name) {
+        this.histogram = new LatencyHistogram(name);
+    }
+
+    // Usage: long start = System.nanoTime(); ...; timer.record(start);
+    public void record(long startNanos) {
+        long latency = System.nanoTime() - startNanos;
+        histogram.record(latency);
+        OperationEvent event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = histogram.getName();
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        return histogram.snapshot();
+    }
+}
+
+// --- Metrics: registry of every timer and counter in the application ---
+final class Metrics {
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    public static final Timer PREMIUM_CALCULATION = timer("insurance.premium_calculation");
+    public static final Timer CLAIM_CHECK = timer("insurance.claim_check");
+    public static final Counter CLAIMS_APPROVED = counter("insurance.claims_approved");
+    public static final Counter CLAIMS_REJECTED = counter("insurance.claims_rejected");
+    public static final Timer STOCK_UPDATE = timer("stock.update");
+    public static final Timer REPORT_GENERATION = timer("report.generation");
+    public static final Timer CHECKOUT = timer("shop.checkout");
+    public static final Counter ORDERS = counter("shop.orders");
+
+    private Metrics() {}
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    public static String snapshotText() {
+        StringBuilder sb = new StringBuilder("===== Metrics Snapshot =====\n");
+        new TreeMap<>(COUNTERS).forEach((name, c) -> sb.append(name).append(" = ").append(c.get()).append('\n'));
+        new TreeMap<>(TIMERS).forEach((name, t) -> sb.append(t.snapshot()).append('\n'));
+        return sb.toString();
+    }
+
+    public static void export(Path file) throws IOException {
+        Files.write(file, snapshotText().getBytes(StandardCharsets.UTF_8));
+    }
+}
+
+// Usage: java MetricsBenchmark [threads] [millis]
+// Measures Timer.record per call, including its nanoTime read, against a bare nanoTime loop.
+class MetricsBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        Timer timer = Metrics.timer("benchmark.record");
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass is warm-up
+            double bare = measure(threads, millis, () -> System.nanoTime());
+            double timed = measure(threads, millis, () -> {
+                long start = System.nanoTime();
+                timer.record(start);
+                return start;
+            });
+            if (pass == 1) {
+                System.out.printf("%d threads: nanoTime %.1f ns/op, nanoTime + Timer.record %.1f ns/op, record %.1f ns%n",
+                        threads, bare, timed, timed - bare);
+            }
+        }
+    }
+
+    interface Task {
+        long run();
+    }
+
+    private static double measure(int threads, long millis, Task task) throws InterruptedException {
+        long[] ops = new long[threads];
+        long[] sinks = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                long n = 0, sink = 0;
+                while ((n & 1023) != 0 || System.nanoTime() < deadline) {
+                    sink += task.run();
+                    n++;
+                }
+                ops[index] = n;
+                sinks[index] = sink;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long elapsed = System.nanoTime() - start;
+        long total = 0;
+        for (long n : ops) total += n;
+        // Per-thread time per operation
+        return (double) elapsed * threads / total;
+    }
+}
@@ -1,7 +1,49 @@
 import java.time.LocalDate;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Cached valuation date for premium calculation, so pricing does not call LocalDate.now() per policy
+final class ValuationClock {
+    private static volatile LocalDate date = LocalDate.now();
+    private static volatile int year = date.getYear();
+
+    private ValuationClock() {}
+
+    public static int year() { return year; }
+    public static LocalDate date() { return date; }
+
+    // Moved once per re-pricing run rather than read once per policy
+    public static synchronized void setDate(LocalDate newDate) {
+        date = newDate;
+        year = newDate.getYear();
+    }
+}
+
+// Abstract Class: PricingInput - anything a premium depends on; setters report changes to its policies
+abstract class PricingInput {
+    private final List<InsurancePolicy> dependents = new ArrayList<>(1);
 
-class Vehicle {
+    synchronized void addDependent(InsurancePolicy policy) {
+        dependents.add(policy);
+    }
+
+    synchronized void removeDependent(InsurancePolicy policy) {
+        dependents.remove(policy);
+    }
+
+    protected synchronized void inputsChanged() {
+        for (InsurancePolicy policy : dependents) policy.markDirty();
+    }
+}
+
+class Vehicle extends PricingInput {
     private String type;
     private int modelYear;
     private double engineCapacity;
@@ -23,28 +65,28 @@ class Vehicle {
     }
 
     public String getType() { return type; }
-    public void setType(String type) { this.type = type; }
+    public void setType(String type) { this.type = type; inputsChanged(); }
 
     public int getModelYear() { return modelYear; }
-    public void setModelYear(int modelYear) { this.modelYear = modelYear; }
+    public void setModelYear(int modelYear) { this.modelYear = modelYear; inputsChanged(); }
 
     public double getEngineCapacity() { return engineCapacity; }
-    public void setEngineCapacity(double engineCapacity) { this.engineCapacity = engineCapacity; }
+    public void setEngineCapacity(double engineCapacity) { this.engineCapacity = engineCapacity; inputsChanged(); }
 
     public boolean isSafetyChecked() { return safetyChecked; }
-    public void setSafetyChecked(boolean safetyChecked) { this.safetyChecked = safetyChecked; }
+    public void setSafetyChecked(boolean safetyChecked) { this.safetyChecked = safetyChecked; inputsChanged(); }
 
     public boolean isRegistrationValid() { return registrationValid; }
-    public void setRegistrationValid(boolean registrationValid) { this.registrationValid = registrationValid; }
+    public void setRegistrationValid(boolean registrationValid) { this.registrationValid = registrationValid; inputsChanged(); }
 
     public boolean isInspectionValid() { return inspectionValid; }
-    public void setInspectionValid(boolean inspectionValid) { this.inspectionValid = inspectionValid; }
+    public void setInspectionValid(boolean inspectionValid) { this.inspectionValid = inspectionValid; inputsChanged(); }
 
     public boolean isCommercial() { return commercial; }
-    public void setCommercial(boolean commercial) { this.commercial = commercial; }
+    public void setCommercial(boolean commercial) { this.commercial = commercial; inputsChanged(); }
 }
 
-class Person {
+class Person extends PricingInput {
     private String name;
     private int age;
     private boolean medicallyCleared;
@@ -56,13 +98,13 @@ class Person {
     }
 
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) { this.name = name; inputsChanged(); }
 
     public int getAge() { return age; }
-    public void setAge(int age) { this.age = age; }
+    public void setAge(int age) { this.age = age; inputsChanged(); }
 
     public boolean isMedicallyCleared() { return medicallyCleared; }
-    public void setMedicallyCleared(boolean medicallyCleared) { this.medicallyCleared = medicallyCleared; }
+    public void setMedicallyCleared(boolean medicallyCleared) { this.medicallyCleared = medicallyCleared; inputsChanged(); }
 }
 
 // Abstract Class: InsurancePolicy
@@ -74,6 +116,12 @@ abstract class InsurancePolicy {
     private double premiumAmount;
     private LocalDate policyStartDate;
     private LocalDate policyEndDate;
+    // Set whenever a premium input changes; cleared when the premium is recalculated
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile PolicyBook book;
+    // Recent claims that got past duplicate screening, oldest first, bounded by ClaimScreen's retention;
+    // null until the first one
+    private List<ClaimRecord> claims;
 
     public InsurancePolicy(String policyId, Vehicle vehicle, Person policyHolder,
                            double coverageAmount, double premiumAmount,
@@ -85,16 +133,28 @@ abstract class InsurancePolicy {
         this.premiumAmount = premiumAmount;
         this.policyStartDate = policyStartDate;
         this.policyEndDate = policyEndDate;
+        vehicle.addDependent(this);
+        policyHolder.addDependent(this);
     }
 
     public String getPolicyId() { return policyId; }
     public void setPolicyId(String policyId) { this.policyId = policyId; }
     public Vehicle getVehicle() { return vehicle; }
-    public void setVehicle(Vehicle vehicle) { this.vehicle = vehicle; }
+    public void setVehicle(Vehicle vehicle) {
+        this.vehicle.removeDependent(this);
+        this.vehicle = vehicle;
+        vehicle.addDependent(this);
+        markDirty();
+    }
     public Person getPolicyHolder() { return policyHolder; }
-    public void setPolicyHolder(Person policyHolder) { this.policyHolder = policyHolder; }
+    public void setPolicyHolder(Person policyHolder) {
+        this.policyHolder.removeDependent(this);
+        this.policyHolder = policyHolder;
+        policyHolder.addDependent(this);
+        markDirty();
+    }
     public double getCoverageAmount() { return coverageAmount; }
-    public void setCoverageAmount(double coverageAmount) { this.coverageAmount = coverageAmount; }
+    public void setCoverageAmount(double coverageAmount) { this.coverageAmount = coverageAmount; markDirty(); }
     public double getPremiumAmount() { return premiumAmount; }
     public void setPremiumAmount(double premiumAmount) { this.premiumAmount = premiumAmount; }
     public LocalDate getPolicyStartDate() { return policyStartDate; }
@@ -106,6 +166,86 @@ abstract class InsurancePolicy {
     public abstract boolean processClaim(double claimAmount);
     public abstract String generatePolicyReport();
     public abstract boolean validatePolicy();
+
+    // Policies whose premium uses the valuation date must be re-priced when that date's year moves;
+    // the risk loading uses vehicle age, so by default every policy does
+    public boolean dependsOnValuationDate() {
+        return true;
+    }
+
+    public int getRiskScore() {
+        return RiskScoring.score(vehicle, policyHolder);
+    }
+
+    protected boolean withinRiskAppetite() {
+        return !RiskScoring.declines(getRiskScore());
+    }
+
+    protected double riskLoading() {
+        return RiskScoring.loading(getRiskScore());
+    }
+
+    // Returns false if the claim is already past retention and was not kept
+    synchronized boolean addClaim(ClaimRecord claim) {
+        long oldest = System.currentTimeMillis() - ClaimScreen.CLAIM_RETENTION_MILLIS;
+        if (claim.getSubmittedAtMillis() < oldest) return false;
+        if (claims == null) claims = new ArrayList<>(2);
+        claims.removeIf(c -> c.getSubmittedAtMillis() < oldest);
+        if (claims.size() == ClaimScreen.CLAIMS_KEPT) claims.remove(0);
+        claims.add(claim);
+        return true;
+    }
+
+    synchronized boolean hasClaim(double amount, LocalDate claimDate) {
+        if (claims == null) return false;
+        for (ClaimRecord claim : claims) {
+            if (claim.sameClaim(amount, claimDate)) return true;
+        }
+        return false;
+    }
+
+    public synchronized List<ClaimRecord> getClaims() {
+        return claims == null ? Collections.emptyList() : new ArrayList<>(claims);
+    }
+
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    void markDirty() {
+        PolicyBook owner = book;
+        if (dirty.compareAndSet(false, true) && owner != null) owner.enqueueDirty(this);
+    }
+
+    // Returns true if the policy was dirty; the caller is then responsible for re-pricing it
+    boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    void attachTo(PolicyBook book) {
+        this.book = book;
+    }
+
+    public final boolean submitClaim(double claimAmount) {
+        return submitClaim(claimAmount, LocalDate.now()).isApproved();
+    }
+
+    // Timed entry point for claims: fraud screening first, then the subclass's processClaim.
+    // Claims on one policy are screened one at a time, so an exact duplicate is always caught.
+    public final ClaimDecision submitClaim(double claimAmount, LocalDate claimDate) {
+        long start = System.nanoTime();
+        ClaimVerdict verdict;
+        boolean approved;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            verdict = ClaimScreen.shared().screen(this, claimAmount, claimDate, now);
+            approved = verdict != ClaimVerdict.DUPLICATE && processClaim(claimAmount);
+            if (verdict != ClaimVerdict.DUPLICATE) addClaim(new ClaimRecord(claimAmount, claimDate, now));
+        }
+        Metrics.CLAIM_CHECK.record(start);
+        (approved ? Metrics.CLAIMS_APPROVED : Metrics.CLAIMS_REJECTED).increment();
+        return new ClaimDecision(approved, verdict);
+    }
 }
 
 // Concrete Class: ComprehensivePolicy
@@ -118,8 +258,8 @@ class ComprehensivePolicy extends InsurancePolicy {
 
     @Override
     public void calculatePremium() {
-        int vehicleAge = LocalDate.now().getYear() - getVehicle().getModelYear();
-        setPremiumAmount(getCoverageAmount() * 0.02 + vehicleAge * 50);
+        int vehicleAge = ValuationClock.year() - getVehicle().getModelYear();
+        setPremiumAmount((getCoverageAmount() * 0.02 + vehicleAge * 50) * riskLoading());
     }
 
     @Override
@@ -134,7 +274,8 @@ class ComprehensivePolicy extends InsurancePolicy {
 
     @Override
     public boolean validatePolicy() {
-        return getVehicle().getType().equalsIgnoreCase("Car") && getVehicle().getModelYear() > 2000;
+        return getVehicle().getType().equalsIgnoreCase("Car") && getVehicle().getModelYear() > 2000
+               && withinRiskAppetite();
     }
 }
 
@@ -148,7 +289,7 @@ class ThirdPartyPolicy extends InsurancePolicy {
 
     @Override
     public void calculatePremium() {
-        setPremiumAmount(getVehicle().getEngineCapacity() * 0.01);
+        setPremiumAmount(getVehicle().getEngineCapacity() * 0.01 * riskLoading());
     }
 
     @Override
@@ -163,7 +304,7 @@ class ThirdPartyPolicy extends InsurancePolicy {
 
     @Override
     public boolean validatePolicy() {
-        return true;
+        return withinRiskAppetite();
     }
 }
 
@@ -177,7 +318,7 @@ class CollisionPolicy extends InsurancePolicy {
 
     @Override
     public void calculatePremium() {
-        setPremiumAmount(getCoverageAmount() * 0.03);
+        setPremiumAmount(getCoverageAmount() * 0.03 * riskLoading());
     }
 
     @Override
@@ -192,7 +333,7 @@ class CollisionPolicy extends InsurancePolicy {
 
     @Override
     public boolean validatePolicy() {
-        return getVehicle().isSafetyChecked();
+        return getVehicle().isSafetyChecked() && withinRiskAppetite();
     }
 }
 
@@ -206,7 +347,7 @@ class LiabilityPolicy extends InsurancePolicy {
 
     @Override
     public void calculatePremium() {
-        setPremiumAmount(getCoverageAmount() * 0.015);
+        setPremiumAmount(getCoverageAmount() * 0.015 * riskLoading());
     }
 
     @Override
@@ -221,7 +362,7 @@ class LiabilityPolicy extends InsurancePolicy {
 
     @Override
     public boolean validatePolicy() {
-        return getPolicyHolder().isMedicallyCleared();
+        return getPolicyHolder().isMedicallyCleared() && withinRiskAppetite();
     }
 }
 
@@ -235,7 +376,7 @@ class RoadsideAssistancePolicy extends InsurancePolicy {
 
     @Override
     public void calculatePremium() {
-        setPremiumAmount(100 + (getVehicle().isCommercial() ? 50 : 0));
+        setPremiumAmount((100 + (getVehicle().isCommercial() ? 50 : 0)) * riskLoading());
     }
 
     @Override
@@ -251,10 +392,11 @@ class RoadsideAssistancePolicy extends InsurancePolicy {
     @Override
     public boolean validatePolicy() {
         return getVehicle().isRegistrationValid() && getVehicle().isInspectionValid()
-               && getPolicyHolder().getAge() >= 18;
+               && getPolicyHolder().getAge() >= 18 && withinRiskAppetite();
     }
 
     public static void generateReport(InsurancePolicy[] policies) {
+        long start = System.nanoTime();
         double totalPremiums = 0;
         int comprehensiveCount = 0, thirdPartyCount = 0, collisionCount = 0, liabilityCount = 0, roadsideCount = 0;
 
@@ -275,97 +417,203 @@ class RoadsideAssistancePolicy extends InsurancePolicy {
         System.out.println("Collision Policies: " + collisionCount);
         System.out.println("Liability Policies: " + liabilityCount);
         System.out.println("Roadside Assistance Policies: " + roadsideCount);
+        Metrics.REPORT_GENERATION.record(start);
+    }
+}
+
+// --- Policy Book: every policy created in this JVM, by policy ID ---
+// Re-pricing is incremental: setters on a policy, its Vehicle or its Person queue the policy here,
+// and a run only prices the queue plus, when the valuation year has moved, the date-sensitive policies.
+class PolicyBook {
+    private final Map<String, InsurancePolicy> policies = new ConcurrentHashMap<>();
+    private final Queue<InsurancePolicy> dirtyQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<InsurancePolicy> dateSensitive = new ConcurrentLinkedQueue<>();
+    private int lastPricedYear = ValuationClock.year();
+
+    // Returns false if a policy with the same ID is already on the book
+    public boolean add(InsurancePolicy policy) {
+        if (policies.putIfAbsent(policy.getPolicyId(), policy) != null) return false;
+        policy.attachTo(this);
+        if (policy.dependsOnValuationDate()) dateSensitive.add(policy);
+        if (policy.isDirty()) dirtyQueue.add(policy);
+        return true;
+    }
+
+    void enqueueDirty(InsurancePolicy policy) {
+        dirtyQueue.add(policy);
+    }
+
+    public int pendingRepricing() {
+        return dirtyQueue.size();
+    }
+
+    // Re-prices only what changed since the last run; returns the number of policies priced
+    public int repriceChanged() {
+        return repriceAsOf(LocalDate.now());
+    }
+
+    public synchronized int repriceAsOf(LocalDate valuationDate) {
+        ValuationClock.setDate(valuationDate);
+        int year = valuationDate.getYear();
+        if (year != lastPricedYear) {
+            for (InsurancePolicy policy : dateSensitive) policy.markDirty();
+            lastPricedYear = year;
+        }
+        int priced = 0;
+        InsurancePolicy policy;
+        while ((policy = dirtyQueue.poll()) != null) {
+            if (policy.clearDirty()) {
+                MotorVehicleInsuranceSystem.price(policy);
+                priced++;
+            }
+        }
+        return priced;
+    }
+
+    synchronized int getLastPricedYear() {
+        return lastPricedYear;
+    }
+
+    // Restored premiums were priced as of the saved year, not this process's; a restart across a year change
+    // then re-prices the date-sensitive policies on the next run, as it would have without the restart
+    synchronized void restoreLastPricedYear(int year) {
+        lastPricedYear = year;
+    }
+
+    public InsurancePolicy find(String policyId) {
+        return policies.get(policyId);
+    }
+
+    public Collection<InsurancePolicy> all() {
+        return policies.values();
+    }
+
+    public int size() {
+        return policies.size();
     }
 }
 
 // Main Class: Outside all others
 public class MotorVehicleInsuranceSystem {
+    static final PolicyBook book = new PolicyBook();
+
+    // Runs on first use of the insurance system, not at program start
+    static {
+        StateSnapshot.restorePolicies(book);
+        StateSnapshot.restoreClaims(book);
+    }
+
+    // Returns null for an unknown policy type
+    public static InsurancePolicy createPolicy(String policyType, String policyId, Vehicle vehicle, Person policyHolder,
+                                               double coverageAmount) {
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusYears(1);
+
+        switch (policyType.toLowerCase()) {
+            case "comprehensive":
+                return new ComprehensivePolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
+            case "thirdparty":
+                return new ThirdPartyPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
+            case "collision":
+                return new CollisionPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
+            case "liability":
+                return new LiabilityPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
+            case "roadsideassistance":
+                return new RoadsideAssistancePolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
+            default:
+                return null;
+        }
+    }
+
+    // Inverse of createPolicy's type argument
+    public static String policyTypeOf(InsurancePolicy policy) {
+        if (policy instanceof ComprehensivePolicy) return "comprehensive";
+        if (policy instanceof ThirdPartyPolicy) return "thirdparty";
+        if (policy instanceof CollisionPolicy) return "collision";
+        if (policy instanceof LiabilityPolicy) return "liability";
+        return "roadsideassistance";
+    }
+
+    // Prices the policy and records the latency; used by the console flow and the HTTP API
+    public static void price(InsurancePolicy policy) {
+        long start = System.nanoTime();
+        policy.clearDirty();
+        policy.calculatePremium();
+        Metrics.PREMIUM_CALCULATION.record(start);
+    }
+
     public static void start() {
-        Scanner scanner = new Scanner(System.in);
+        ConsoleInput input = ConsoleInput.stdin();
 
         System.out.print("Enter the number of policies to create: ");
-        int numPolicies = scanner.nextInt();
-        scanner.nextLine();
+        int numPolicies = input.nextInt();
+        input.skipLine();
 
         InsurancePolicy[] policies = new InsurancePolicy[numPolicies];
 
         for (int i = 0; i < numPolicies; i++) {
             System.out.println("Enter details for Policy " + (i + 1) + ":");
             System.out.print("Policy Type (Comprehensive/ThirdParty/Collision/Liability/RoadsideAssistance): ");
-            String policyType = scanner.nextLine();
+            String policyType = input.nextLine();
 
             System.out.print("Policy ID: ");
-            String policyId = scanner.nextLine();
+            String policyId = input.nextLine();
 
             System.out.println("Enter Vehicle Details:");
             System.out.print("Type: ");
-            String type = scanner.nextLine();
+            String type = input.nextLine();
             System.out.print("Model Year: ");
-            int modelYear = scanner.nextInt();
+            int modelYear = input.nextInt();
             System.out.print("Engine Capacity: ");
-            double engineCapacity = scanner.nextDouble();
+            double engineCapacity = input.nextDouble();
             System.out.print("Is Safety Checked (true/false): ");
-            boolean safetyChecked = scanner.nextBoolean();
+            boolean safetyChecked = input.nextBoolean();
             System.out.print("Is Registration Valid (true/false): ");
-            boolean registrationValid = scanner.nextBoolean();
+            boolean registrationValid = input.nextBoolean();
             System.out.print("Is Inspection Valid (true/false): ");
-            boolean inspectionValid = scanner.nextBoolean();
+            boolean inspectionValid = input.nextBoolean();
             System.out.print("Is Commercial (true/false): ");
-            boolean commercial = scanner.nextBoolean();
-            scanner.nextLine();
+            boolean commercial = input.nextBoolean();
+            input.skipLine();
 
             Vehicle vehicle = new Vehicle(type, modelYear, engineCapacity, safetyChecked, registrationValid, inspectionValid, commercial);
 
             System.out.println("Enter Policy Holder Details:");
             System.out.print("Name: ");
-            String name = scanner.nextLine();
+            String name = input.nextLine();
             System.out.print("Age: ");
-            int age = scanner.nextInt();
+            int age = input.nextInt();
             System.out.print("Is Medically Cleared (true/false): ");
-            boolean medicallyCleared = scanner.nextBoolean();
-            scanner.nextLine();
+            boolean medicallyCleared = input.nextBoolean();
+            input.skipLine();
 
             Person policyHolder = new Person(name, age, medicallyCleared);
 
             System.out.print("Coverage Amount: ");
-            double coverageAmount = scanner.nextDouble();
-            scanner.nextLine();
-
-            LocalDate startDate = LocalDate.now();
-            LocalDate endDate = startDate.plusYears(1);
-
-            switch (policyType.toLowerCase()) {
-                case "comprehensive":
-                    policies[i] = new ComprehensivePolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
-                    break;
-                case "thirdparty":
-                    policies[i] = new ThirdPartyPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
-                    break;
-                case "collision":
-                    policies[i] = new CollisionPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
-                    break;
-                case "liability":
-                    policies[i] = new LiabilityPolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
-                    break;
-                case "roadsideassistance":
-                    policies[i] = new RoadsideAssistancePolicy(policyId, vehicle, policyHolder, coverageAmount, 0, startDate, endDate);
-                    break;
-                default:
-                    System.out.println("Invalid policy type. Try again.");
-                    i--;
-                    continue;
+            double coverageAmount = input.nextDouble();
+            input.skipLine();
+
+            policies[i] = createPolicy(policyType, policyId, vehicle, policyHolder, coverageAmount);
+            if (policies[i] == null) {
+                System.out.println("Invalid policy type. Try again.");
+                i--;
+                continue;
+            }
+            if (!book.add(policies[i])) {
+                System.out.println("A policy with this ID already exists. Try again.");
+                i--;
             }
         }
 
         for (InsurancePolicy policy : policies) {
-            policy.calculatePremium();
+            price(policy);
             System.out.println(policy.generatePolicyReport());
             System.out.println("Premium: $" + policy.getPremiumAmount());
+            System.out.println("Risk Score: " + policy.getRiskScore());
             System.out.println("Valid Policy: " + policy.validatePolicy());
             System.out.println();
         }
 
         RoadsideAssistancePolicy.generateReport(policies);
-        scanner.close();
     }
 }
@@ -1,10 +1,17 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 
 abstract class ShoppingItem {
     protected String itemId, itemName, itemDescription;
     protected double price;
     protected int stockAvailable;
+    // Units taken by reserveInto that the warehouse ledger has not been told about yet
+    protected int unsettled;
 
     public ShoppingItem(String itemId, String itemName, String itemDescription, double price, int stockAvailable) {
         if (price <= 0) throw new IllegalArgumentException("Price must be positive.");
@@ -19,8 +26,33 @@ abstract class ShoppingItem {
 
     public abstract void updateStock(int quantity);
     public abstract void addToCart(Customer customer);
-    public abstract void generateInvoice(Customer customer);
+    public abstract boolean reserveInto(ShoppingCart cart);
+    public abstract String buildInvoice(Customer customer);
     public abstract void validateItem();
+
+    public void generateInvoice(Customer customer) {
+        System.out.println(buildInvoice(customer));
+    }
+
+    public String getCategory() {
+        return "General";
+    }
+
+    // Puts back one unit taken by reserveInto for a checkout that did not complete
+    public synchronized void releaseReservation() {
+        stockAvailable++;
+        unsettled--;
+    }
+
+    // Called once the warehouse ledger has taken reserved units out of its own count
+    public synchronized void settle(int quantity) {
+        unsettled = Math.max(0, unsettled - quantity);
+    }
+
+    // The warehouse ledger is the source of truth: available to sell is its count less unsettled reservations
+    public synchronized void syncAvailable(int warehouseQuantity) {
+        stockAvailable = Math.max(0, warehouseQuantity - unsettled);
+    }
 }
 
 class ElectronicsItem extends ShoppingItem {
@@ -32,23 +64,36 @@ class ElectronicsItem extends ShoppingItem {
         this.warrantyMonths = warrantyMonths;
     }
 
-    public void updateStock(int quantity) {
+    public int getWarrantyMonths() {
+        return warrantyMonths;
+    }
+
+    public synchronized void updateStock(int quantity) {
         if (stockAvailable >= quantity) stockAvailable -= quantity;
         else System.out.println("Not enough stock.");
     }
 
     public void addToCart(Customer customer) {
-        if (stockAvailable > 0) {
-            customer.getCart().addItem(this);
-            updateStock(1);
-        } else {
-            System.out.println("Item out of stock.");
-        }
+        if (!reserveInto(customer.getCart())) System.out.println("Item out of stock.");
     }
 
-    public void generateInvoice(Customer customer) {
-        System.out.println("Invoice for: " + customer.getCustomerName());
-        System.out.println("Item: " + itemName + " | Warranty: " + warrantyMonths + " months | Price: " + price);
+    // Takes one unit off the shelf and into the cart; false if none is left
+    public synchronized boolean reserveInto(ShoppingCart cart) {
+        if (stockAvailable <= 0) return false;
+        cart.addItem(this);
+        stockAvailable--;
+        unsettled++;
+        return true;
+    }
+
+    @Override
+    public String getCategory() {
+        return "Electronics";
+    }
+
+    public String buildInvoice(Customer customer) {
+        return "Invoice for: " + customer.getCustomerName() + "\n"
+                + "Item: " + itemName + " | Warranty: " + warrantyMonths + " months | Price: " + price;
     }
 
     public void validateItem() {
@@ -61,10 +106,8 @@ class Customer {
     private ShoppingCart cart;
 
     public Customer(String customerId, String customerName, String email, String address, String phone) {
-        if (customerName == null || customerName.isEmpty()) throw new IllegalArgumentException("Customer name cannot be empty.");
-        if (!email.contains("@") || !email.contains(".")) throw new IllegalArgumentException("Invalid email.");
-        if (phone.length() < 9) throw new IllegalArgumentException("Invalid phone number.");
-        if (address == null || address.length() < 3) throw new IllegalArgumentException("Address is too short.");
+        CustomerValidation result = CustomerValidator.validate(customerName, email, address, phone);
+        if (!result.isValid()) throw new IllegalArgumentException(result.getMessage());
 
         this.customerId = customerId;
         this.customerName = customerName;
@@ -74,19 +117,37 @@ class Customer {
         this.cart = new ShoppingCart(this);
     }
 
+    public String getCustomerId() {
+        return customerId;
+    }
+
     public String getCustomerName() {
         return customerName;
     }
 
+    public String getEmail() {
+        return email;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
     public ShoppingCart getCart() {
         return cart;
     }
 }
 
 class ShoppingCart {
-    private String cartId = UUID.randomUUID().toString();
+    private String cartId = Ids.next();
     private List<ShoppingItem> cartItems = new ArrayList<>();
     private double totalPrice = 0.0;
+    private double discount = 0.0;
+    private PromotionEngine promotions;
     private Customer customer;
 
     public ShoppingCart(Customer customer) {
@@ -97,11 +158,45 @@ class ShoppingCart {
         if (item != null) {
             cartItems.add(item);
             totalPrice += item.price;
+            if (promotions != null) reprice();
         }
     }
 
+    // Keeps the cart priced against the given promotions as items are added
+    public void applyPromotions(PromotionEngine promotions) {
+        this.promotions = promotions;
+        reprice();
+    }
+
+    private void reprice() {
+        discount = promotions.price(cartItems).getDiscount();
+    }
+
     public double getTotalPrice() {
-        return totalPrice;
+        return totalPrice - discount;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
+    public String getCartId() {
+        return cartId;
+    }
+
+    public List<ShoppingItem> getItems() {
+        return Collections.unmodifiableList(cartItems);
+    }
+
+    // Collapses repeated adds of the same item into one line with a quantity
+    public List<OrderLine> toOrderLines() {
+        Map<String, OrderLine> lines = new LinkedHashMap<>();
+        for (ShoppingItem item : cartItems) {
+            OrderLine existing = lines.get(item.itemId);
+            int qty = existing == null ? 1 : existing.getQuantity() + 1;
+            lines.put(item.itemId, new OrderLine(item.itemId, item.itemName, item.price, qty));
+        }
+        return new ArrayList<>(lines.values());
     }
 
     public void viewCart() {
@@ -109,12 +204,13 @@ class ShoppingCart {
         for (ShoppingItem item : cartItems) {
             System.out.println("- " + item.itemName + ": " + item.price);
         }
-        System.out.println("Total: " + totalPrice);
+        if (discount > 0) System.out.println("Discount: -" + discount);
+        System.out.println("Total: " + getTotalPrice());
     }
 }
 
 class Payment {
-    private String paymentId = UUID.randomUUID().toString();
+    private String paymentId = Ids.next();
     private String paymentMethod;
     private double amountPaid;
     private LocalDate transactionDate = LocalDate.now();
@@ -129,6 +225,14 @@ class Payment {
         this.amountPaid = amount;
     }
 
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public double getAmountPaid() {
+        return amountPaid;
+    }
+
     public void printReceipt() {
         System.out.println("\nPayment ID: " + paymentId);
         System.out.println("Method: " + paymentMethod);
@@ -138,70 +242,200 @@ class Payment {
 }
 
 public class OnlineShoppingSystem {
+    // Opened on first use, so runs that never touch orders do not create the journal file
+    private static class OrderJournalHolder {
+        static final OrderJournal INSTANCE = OrderJournal.open(Paths.get("orders.journal"));
+    }
+    static final CustomerRegistry customers = new CustomerRegistry();
+    static final SalesAnalytics analytics = new SalesAnalytics(10);
+    static volatile PromotionEngine promotions = PromotionEngine.empty();
+    // Source of the active engine, which is rebuilt from it whenever promotions are added
+    private static final Map<String, Promotion> promotionsById = new LinkedHashMap<>();
+    static final Map<String, ShoppingItem> catalog = new ConcurrentHashMap<>();
+
+    // Runs on first use of the shop, not at program start
+    static {
+        StateSnapshot.restoreCatalog(catalog);
+        StateSnapshot.restoreCustomers(customers);
+        addPromotions(StateSnapshot.restorePromotions());
+        // The warehouse may have changed while the catalog was saved; bring every listing back in step
+        InventoryBus.shared().publishResync();
+    }
+
     public static void start() {
-        Scanner scanner = new Scanner(System.in);
+        ConsoleInput input = ConsoleInput.stdin();
         System.out.println("--- Welcome to the Online Shopping System ---");
 
-        Customer customer = createCustomer(scanner);
-        ElectronicsItem electronics = createElectronicsItem(scanner);
+        Customer customer = createCustomer(input);
+        ElectronicsItem electronics = createElectronicsItem(input);
 
-        electronics.addToCart(customer);
-        customer.getCart().viewCart();
+        if (catalog.putIfAbsent(electronics.itemId, electronics) == null) InventoryBus.shared().publishSync(electronics.itemId);
+        // A fresh cart per checkout, as the HTTP API uses: a returning customer's earlier order is not billed again
+        ShoppingCart cart = new ShoppingCart(customer);
+        cart.applyPromotions(promotions);
+        if (!electronics.reserveInto(cart)) {
+            System.out.println("Item out of stock.");
+            return;
+        }
+        cart.viewCart();
 
-        Payment payment = createPayment(scanner, customer.getCart().getTotalPrice());
+        Payment payment = createPayment(input, cart.getTotalPrice());
         payment.printReceipt();
 
         electronics.generateInvoice(customer);
-        scanner.close();
+        try {
+            OrderRecord order = recordOrder(customer, cart, payment, electronics.buildInvoice(customer));
+            System.out.println("Order " + order.getOrderId() + " recorded.");
+        } catch (UncheckedIOException e) {
+            System.out.println("Error: " + e.getMessage() + " " + e.getCause().getMessage());
+            electronics.releaseReservation();
+        }
+    }
+
+    // Adds all of the given promotions and swaps in a rebuilt engine, or none of them if any ID is taken.
+    // Carts that are already open keep pricing against the engine they started with.
+    public static synchronized boolean addPromotions(List<Promotion> added) {
+        Set<String> ids = new HashSet<>();
+        for (Promotion p : added) {
+            if (promotionsById.containsKey(p.getPromotionId()) || !ids.add(p.getPromotionId())) return false;
+        }
+        for (Promotion p : added) promotionsById.put(p.getPromotionId(), p);
+        PromotionEngine.Builder builder = new PromotionEngine.Builder();
+        for (Promotion p : promotionsById.values()) builder.add(p);
+        promotions = builder.build();
+        return true;
+    }
+
+    public static synchronized List<String> promotionIds() {
+        return new ArrayList<>(promotionsById.keySet());
     }
 
-    public static Customer createCustomer(Scanner scanner) {
+    static synchronized List<Promotion> promotionList() {
+        return new ArrayList<>(promotionsById.values());
+    }
+
+    static OrderJournal orders() {
+        return OrderJournalHolder.INSTANCE;
+    }
+
+    // Non-interactive checkout over catalog items, used by the HTTP API
+    public static OrderRecord checkout(Customer customer, List<String> itemIds, String paymentMethod) {
+        ShoppingCart cart = new ShoppingCart(customer);
+        cart.applyPromotions(promotions);
+        List<ShoppingItem> reserved = new ArrayList<>();
+        boolean recorded = false;
+        try {
+            for (String itemId : itemIds) {
+                ShoppingItem item = catalog.get(itemId);
+                if (item == null) throw new IllegalArgumentException("Unknown item: " + itemId);
+                if (!item.reserveInto(cart)) throw new IllegalArgumentException("Item out of stock: " + itemId);
+                reserved.add(item);
+            }
+            Payment payment = new Payment(paymentMethod, cart.getTotalPrice());
+            StringBuilder invoice = new StringBuilder();
+            for (ShoppingItem item : reserved) invoice.append(item.buildInvoice(customer)).append('\n');
+            OrderRecord order = recordOrder(customer, cart, payment, invoice.toString());
+            recorded = true;
+            return order;
+        } finally {
+            // Whatever stopped the checkout, every unit it reserved goes back on the shelf
+            if (!recorded) for (ShoppingItem item : reserved) item.releaseReservation();
+        }
+    }
+
+    public static OrderRecord recordOrder(Customer customer, ShoppingCart cart, Payment payment, String invoice) {
+        long start = System.nanoTime();
+        OrderRecord order = new OrderRecord(Ids.next(), customer.getCustomerId(),
+                customer.getCustomerName(), cart.toOrderLines(), payment.getPaymentId(),
+                payment.getAmountPaid(), invoice, System.currentTimeMillis());
+        // Only report the order, and publish its reservations, once it is durable in the journal
+        try {
+            orders().append(order).join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof IOException)) throw e;
+            throw new UncheckedIOException("Order " + order.getOrderId() + " could not be recorded.",
+                    (IOException) e.getCause());
+        }
+        for (OrderLine line : order.getLines()) {
+            InventoryBus.shared().publishReservation(line.getItemId(), line.getQuantity());
+        }
+        analytics.record(order);
+        Metrics.ORDERS.increment();
+        Metrics.CHECKOUT.record(start);
+        return order;
+    }
+
+    // A returning customer, known by ID or by email, is reused rather than registered again
+    public static Customer createCustomer(ConsoleInput input) {
         while (true) {
-            try {
-                System.out.print("Customer ID: ");
-                String id = scanner.nextLine();
-                System.out.print("Name: ");
-                String name = scanner.nextLine();
-                System.out.print("Email: ");
-                String email = scanner.nextLine();
-                System.out.print("Address: ");
-                String address = scanner.nextLine();
-                System.out.print("Phone: ");
-                String phone = scanner.nextLine();
-                return new Customer(id, name, email, address, phone);
-            } catch (IllegalArgumentException e) {
-                System.out.println("Error: " + e.getMessage());
+            System.out.print("Customer ID: ");
+            String id = input.nextLine();
+            Customer existing = customers.findById(id);
+            if (existing != null) {
+                System.out.println("Welcome back, " + existing.getCustomerName() + ".");
+                return existing;
+            }
+            System.out.print("Name: ");
+            String name = input.nextLine();
+            System.out.print("Email: ");
+            String email = input.nextLine();
+            System.out.print("Address: ");
+            String address = input.nextLine();
+            System.out.print("Phone: ");
+            String phone = input.nextLine();
+
+            CustomerValidation result = CustomerValidator.validate(name, email, address, phone);
+            if (!result.isValid()) {
+                System.out.println("Error: " + result.getMessage());
+                continue;
             }
+            existing = customers.findByEmail(email);
+            if (existing == null) {
+                Customer customer = new Customer(id, name, email, address, phone);
+                result = customers.register(customer);
+                if (result.isValid()) return customer;
+                // Registered concurrently, e.g. through the HTTP API, since the lookups above
+                existing = result == CustomerValidation.DUPLICATE_ID ? customers.findById(id) : customers.findByEmail(email);
+            }
+            System.out.println("Already registered as customer " + existing.getCustomerId()
+                    + "; continuing as " + existing.getCustomerName() + ".");
+            return existing;
         }
     }
 
-    public static ElectronicsItem createElectronicsItem(Scanner scanner) {
+    public static ElectronicsItem createElectronicsItem(ConsoleInput input) {
         while (true) {
             try {
                 System.out.print("Item ID: ");
-                String id = scanner.nextLine();
+                String id = input.nextLine();
                 System.out.print("Name: ");
-                String name = scanner.nextLine();
+                String name = input.nextLine();
                 System.out.print("Description: ");
-                String desc = scanner.nextLine();
+                String desc = input.nextLine();
                 System.out.print("Price: ");
-                double price = Double.parseDouble(scanner.nextLine());
+                double price = input.nextDouble();
+                input.skipLine();
                 System.out.print("Stock Available: ");
-                int stock = Integer.parseInt(scanner.nextLine());
+                int stock = input.nextInt();
+                input.skipLine();
                 System.out.print("Warranty (months): ");
-                int warranty = Integer.parseInt(scanner.nextLine());
+                int warranty = input.nextInt();
+                input.skipLine();
                 return new ElectronicsItem(id, name, desc, price, stock, warranty);
+            } catch (InputMismatchException e) {
+                input.skipLine();
+                System.out.println("Error: " + e.getMessage());
             } catch (Exception e) {
                 System.out.println("Error: " + e.getMessage());
             }
         }
     }
 
-    public static Payment createPayment(Scanner scanner, double totalAmount) {
+    public static Payment createPayment(ConsoleInput input, double totalAmount) {
         while (true) {
             try {
                 System.out.print("\nEnter payment method (Credit Card / PayPal): ");
-                String method = scanner.nextLine();
+                String method = input.nextLine();
                 return new Payment(method, totalAmount);
             } catch (IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+// --- Order Line: one cart entry, grouped by itemId ---
+class OrderLine {
+    private final String itemId, itemName;
+    private final double unitPrice;
+    private final int quantity;
+
+    public OrderLine(String itemId, String itemName, double unitPrice, int quantity) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+    }
+
+    public String getItemId() { return itemId; }
+    public String getItemName() { return itemName; }
+    public double getUnitPrice() { return unitPrice; }
+    public int getQuantity() { return quantity; }
+}
+
+// --- Order Record: everything kept about a completed checkout ---
+class OrderRecord {
+    private final String orderId, customerId, customerName, paymentId, invoice;
+    private final List<OrderLine> lines;
+    private final double amountPaid;
+    private final long createdAtMillis;
+
+    public OrderRecord(String orderId, String customerId, String customerName, List<OrderLine> lines,
+            String paymentId, double amountPaid, String invoice, long createdAtMillis) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        this.paymentId = paymentId;
+        this.amountPaid = amountPaid;
+        this.invoice = invoice;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    public String getOrderId() { return orderId; }
+    public String getCustomerId() { return customerId; }
+    public String getCustomerName() { return customerName; }
+    public List<OrderLine> getLines() { return lines; }
+    public String getPaymentId() { return paymentId; }
+    public double getAmountPaid() { return amountPaid; }
+    public String getInvoice() { return invoice; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    void writeTo(ByteBuffer buf) {
+        putString(buf, orderId);
+        putString(buf, customerId);
+        putString(buf, customerName);
+        putString(buf, paymentId);
+        buf.putDouble(amountPaid);
+        buf.putLong(createdAtMillis);
+        buf.putInt(lines.size());
+        for (OrderLine line : lines) {
+            putString(buf, line.getItemId());
+            putString(buf, line.getItemName());
+            buf.putDouble(line.getUnitPrice());
+            buf.putInt(line.getQuantity());
+        }
+        putString(buf, invoice);
+    }
+
+    static OrderRecord readFrom(ByteBuffer buf) {
+        String orderId = getString(buf);
+        String customerId = getString(buf);
+        String customerName = getString(buf);
+        String paymentId = getString(buf);
+        double amountPaid = buf.getDouble();
+        long createdAt = buf.getLong();
+        int lineCount = buf.getInt();
+        List<OrderLine> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            lines.add(new OrderLine(getString(buf), getString(buf), buf.getDouble(), buf.getInt()));
+        }
+        String invoice = getString(buf);
+        return new OrderRecord(orderId, customerId, customerName, lines, paymentId, amountPaid, invoice, createdAt);
+    }
+
+    // Upper bound on the encoded size, used to size the batch buffer before encoding
+    int maxEncodedSize() {
+        int size = 8 + 8 + 4 + maxStringSize(orderId) + maxStringSize(customerId) + maxStringSize(customerName)
+                + maxStringSize(paymentId) + maxStringSize(invoice);
+        for (OrderLine line : lines) {
+            size += maxStringSize(line.getItemId()) + maxStringSize(line.getItemName()) + 8 + 4;
+        }
+        return size;
+    }
+
+    private static int maxStringSize(String s) {
+        return 4 + (s == null ? 0 : s.length() * 3);
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
+
+// --- Order Journal: write-behind, group-committed append log with in-memory indexes ---
+// Record layout on disk: [int payloadLength][int crc32][payload]
+class OrderJournal implements AutoCloseable {
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_BATCH = 1024;
+    // A failed batch write is retried with doubling back-off before its orders are failed
+    private static final int WRITE_ATTEMPTS = 4;
+    private static final long RETRY_BACKOFF_MILLIS = 50;
+
+    private static class Pending {
+        final OrderRecord order;
+        final CompletableFuture<OrderRecord> durable = new CompletableFuture<>();
+
+        Pending(OrderRecord order) {
+            this.order = order;
+        }
+    }
+
+    private static final Pending STOP = new Pending(null);
+
+    private final FileChannel channel;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Long> offsetByOrderId = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> orderIdsByCustomer = new ConcurrentHashMap<>();
+    private final Map<String, OrderRecord> notYetWritten = new ConcurrentHashMap<>();
+    // Orders in the log plus orders still queued; an order moves between the two maps without being counted twice
+    private final AtomicInteger orderCount = new AtomicInteger();
+    private final Thread writer;
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(256 * 1024);
+    private long endOfLog;
+    // Guards closed together with the enqueue, so no order can land in the queue behind STOP or after the writer exits
+    private final Object appendLock = new Object();
+    private volatile boolean closed;
+
+    private OrderJournal(FileChannel channel) throws IOException {
+        this.channel = channel;
+        recover();
+        this.writer = new Thread(this::writeLoop, "order-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static OrderJournal open(Path file) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            OrderJournal journal = new OrderJournal(channel);
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "order-journal-shutdown"));
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open order journal " + file, e);
+        }
+    }
+
+    // Returns immediately; the future completes once the order's batch has been fsynced, or exceptionally if
+    // the batch could not be written, in which case the order is dropped from the journal's indexes
+    public CompletableFuture<OrderRecord> append(OrderRecord order) {
+        Pending pending = new Pending(order);
+        synchronized (appendLock) {
+            if (closed) throw new IllegalStateException("Order journal is closed.");
+            notYetWritten.put(order.getOrderId(), order);
+            orderCount.incrementAndGet();
+            indexCustomer(order.getCustomerId(), order.getOrderId());
+            queue.add(pending);
+        }
+        return pending.durable;
+    }
+
+    public OrderRecord findById(String orderId) {
+        OrderRecord pending = notYetWritten.get(orderId);
+        if (pending != null) return pending;
+        Long offset = offsetByOrderId.get(orderId);
+        return offset == null ? null : readAt(offset);
+    }
+
+    public List<OrderRecord> findByCustomer(String customerId) {
+        List<String> ids = orderIdsByCustomer.get(customerId);
+        if (ids == null) return Collections.emptyList();
+        List<OrderRecord> result = new ArrayList<>();
+        synchronized (ids) {
+            for (String id : ids) {
+                OrderRecord order = findById(id);
+                if (order != null) result.add(order);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return orderCount.get();
+    }
+
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (!closed) {
+                closed = true;
+                queue.add(STOP);
+            }
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Error closing order journal: " + e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean running = true;
+        try {
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+                if (batch.remove(STOP)) {
+                    // Flush whatever is still queued behind the stop marker before exiting
+                    queue.drainTo(batch);
+                    running = false;
+                }
+                if (!batch.isEmpty()) {
+                    try {
+                        writeBatch(batch);
+                    } catch (RuntimeException e) {
+                        System.out.println("Error writing " + batch.size() + " orders to journal: " + e);
+                        for (Pending p : batch) fail(p, e);
+                    }
+                }
+                batch.clear();
+            }
+        } finally {
+            // However the writer exits, refuse further appends and fail every order it will never write
+            synchronized (appendLock) {
+                closed = true;
+            }
+            IllegalStateException stopped = new IllegalStateException("Order journal writer stopped.");
+            queue.drainTo(batch);
+            for (Pending p : batch) fail(p, stopped);
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        int required = 0;
+        for (Pending p : batch) required += HEADER_SIZE + p.order.maxEncodedSize();
+        if (batchBuffer.capacity() < required) {
+            batchBuffer = ByteBuffer.allocateDirect(Math.max(required, batchBuffer.capacity() * 2));
+        }
+        ByteBuffer buf = batchBuffer;
+        buf.clear();
+        long[] offsets = new long[batch.size()];
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < batch.size(); i++) {
+            int start = buf.position();
+            offsets[i] = endOfLog + start;
+            buf.position(start + HEADER_SIZE);
+            batch.get(i).order.writeTo(buf);
+            int end = buf.position();
+            ByteBuffer payload = buf.duplicate();
+            payload.position(start + HEADER_SIZE).limit(end);
+            crc.reset();
+            crc.update(payload);
+            buf.putInt(start, end - start - HEADER_SIZE);
+            buf.putInt(start + 4, (int) crc.getValue());
+        }
+        buf.flip();
+        IOException failure = null;
+        for (int attempt = 0; attempt < WRITE_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !backOff(attempt)) break;
+            try {
+                // A partial earlier attempt is overwritten, since every attempt starts at the same end of log
+                buf.rewind();
+                long position = endOfLog;
+                while (buf.hasRemaining()) position += channel.write(buf, position);
+                channel.force(false);
+                endOfLog = position;
+                failure = null;
+                break;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            System.out.println("Error writing " + batch.size() + " orders to journal: " + failure.getMessage());
+            for (Pending p : batch) fail(p, failure);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            OrderRecord order = batch.get(i).order;
+            offsetByOrderId.put(order.getOrderId(), offsets[i]);
+            notYetWritten.remove(order.getOrderId());
+            batch.get(i).durable.complete(order);
+        }
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // A no-op for an order that was already written: its future is done and it is no longer in notYetWritten
+    private void fail(Pending pending, Throwable cause) {
+        if (pending == STOP) return;
+        discard(pending.order);
+        pending.durable.completeExceptionally(cause);
+    }
+
+    private void discard(OrderRecord order) {
+        if (notYetWritten.remove(order.getOrderId()) == null) return;
+        orderCount.decrementAndGet();
+        List<String> ids = orderIdsByCustomer.get(order.getCustomerId());
+        if (ids == null) return;
+        synchronized (ids) {
+            ids.remove(order.getOrderId());
+        }
+    }
+
+    private OrderRecord readAt(long offset) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, offset);
+            header.flip();
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt());
+            readFully(payload, offset + HEADER_SIZE);
+            payload.flip();
+            return OrderRecord.readFrom(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read order at offset " + offset, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("Unexpected end of order journal.");
+        }
+    }
+
+    // Rebuilds the indexes from the log and cuts off a torn tail left by a crash mid-batch
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            // A zero header passes the CRC check (the CRC of no bytes is 0), but no order encodes to nothing
+            if (length <= 0 || position + HEADER_SIZE + length > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_SIZE);
+            payload.flip();
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+            OrderRecord order = OrderRecord.readFrom(payload);
+            offsetByOrderId.put(order.getOrderId(), position);
+            orderCount.incrementAndGet();
+            indexCustomer(order.getCustomerId(), order.getOrderId());
+            position += HEADER_SIZE + length;
+        }
+        if (position < size) channel.truncate(position);
+        endOfLog = position;
+    }
+
+    private void indexCustomer(String customerId, String orderId) {
+        List<String> ids = orderIdsByCustomer.computeIfAbsent(customerId, k -> new ArrayList<>());
+        synchronized (ids) {
+            ids.add(orderId);
+        }
+    }
+}
+
+// --- Self-test: journal round trip, torn-tail recovery and CRC checks (run by SelfTest) ---
+class OrderJournalSelfTest {
+    static void run() throws Exception {
+        Path file = Files.createTempFile("order-journal", ".log");
+        try {
+            OrderJournal journal = OrderJournal.open(file);
+            for (int i = 1; i <= 3; i++) journal.append(order("O" + i, i == 3 ? "C2" : "C1")).get(5, TimeUnit.SECONDS);
+            journal.close();
+            long intact = Files.size(file);
+
+            // Torn tail: the start of a record whose payload never reached the disk
+            Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 30), StandardOpenOption.APPEND);
+            journal = OrderJournal.open(file);
+            SelfTest.check(journal.size() == 3, "torn tail dropped on recovery");
+            SelfTest.check(Files.size(file) == intact, "torn tail truncated");
+            SelfTest.check(journal.findById("O2").getCustomerName().equals("Name O2"), "order read back from the log");
+            SelfTest.check(journal.findByCustomer("C1").size() == 2, "customer index rebuilt");
+            journal.close();
+
+            // Zero-filled tail, as a file system can leave after a crash: an empty record is not a record
+            Files.write(file, new byte[64], StandardOpenOption.APPEND);
+            journal = OrderJournal.open(file);
+            SelfTest.check(journal.size() == 3 && Files.size(file) == intact, "zero-filled tail truncated");
+            journal.close();
+
+            // A flipped bit in the last record fails its CRC: that record and everything after it is cut off
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(file, bytes);
+            journal = OrderJournal.open(file);
+            SelfTest.check(journal.size() == 2, "record with a bad CRC dropped");
+            SelfTest.check(journal.findById("O3") == null && journal.findById("O1") != null, "records before it kept");
+            journal.append(order("O4", "C2")).get(5, TimeUnit.SECONDS);
+            journal.close();
+            journal = OrderJournal.open(file);
+            SelfTest.check(journal.size() == 3, "appends continue after the last good record");
+            journal.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static OrderRecord order(String orderId, String customerId) {
+        return new OrderRecord(orderId, customerId, "Name " + orderId,
+                Collections.singletonList(new OrderLine("I1", "Item", 9.5, 2)), "PAY-" + orderId, 19, "Invoice", 1L);
+    }
+}
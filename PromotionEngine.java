@@ -0,0 +1,374 @@
+import java.util.*;
+
+// --- Cart Line: one item id with its quantity, as seen by the promotions engine ---
+class CartLine {
+    final ShoppingItem item;
+    int quantity;
+
+    CartLine(ShoppingItem item) {
+        this.item = item;
+    }
+
+    double lineTotal() {
+        return item.price * quantity;
+    }
+}
+
+// Abstract Class: Promotion
+abstract class Promotion {
+    private final String promotionId;
+
+    protected Promotion(String promotionId) {
+        this.promotionId = promotionId;
+    }
+
+    public String getPromotionId() { return promotionId; }
+}
+
+// Line promotions target one item id or one category and discount a single cart line
+abstract class LinePromotion extends Promotion {
+    private final String itemId, category;
+
+    protected LinePromotion(String promotionId, String itemId, String category) {
+        super(promotionId);
+        if ((itemId == null) == (category == null))
+            throw new IllegalArgumentException("A promotion must target exactly one of item ID or category.");
+        this.itemId = itemId;
+        this.category = category;
+    }
+
+    public String getItemId() { return itemId; }
+    public String getCategory() { return category; }
+
+    public abstract double discount(CartLine line);
+}
+
+class PercentageDiscount extends LinePromotion {
+    private final double percent;
+
+    public PercentageDiscount(String promotionId, String itemId, String category, double percent) {
+        super(promotionId, itemId, category);
+        if (percent <= 0 || percent > 100) throw new IllegalArgumentException("Percent must be 0-100.");
+        this.percent = percent;
+    }
+
+    public double getPercent() { return percent; }
+
+    @Override
+    public double discount(CartLine line) {
+        return line.lineTotal() * percent / 100;
+    }
+}
+
+class FixedDiscount extends LinePromotion {
+    private final double amountPerUnit;
+
+    public FixedDiscount(String promotionId, String itemId, String category, double amountPerUnit) {
+        super(promotionId, itemId, category);
+        if (amountPerUnit <= 0) throw new IllegalArgumentException("Discount amount must be positive.");
+        this.amountPerUnit = amountPerUnit;
+    }
+
+    public double getAmountPerUnit() { return amountPerUnit; }
+
+    @Override
+    public double discount(CartLine line) {
+        return Math.min(amountPerUnit, line.item.price) * line.quantity;
+    }
+}
+
+class BuyXGetYFree extends LinePromotion {
+    private final int buyQuantity, freeQuantity;
+
+    public BuyXGetYFree(String promotionId, String itemId, String category, int buyQuantity, int freeQuantity) {
+        super(promotionId, itemId, category);
+        if (buyQuantity <= 0 || freeQuantity <= 0) throw new IllegalArgumentException("Quantities must be positive.");
+        this.buyQuantity = buyQuantity;
+        this.freeQuantity = freeQuantity;
+    }
+
+    public int getBuyQuantity() { return buyQuantity; }
+    public int getFreeQuantity() { return freeQuantity; }
+
+    @Override
+    public double discount(CartLine line) {
+        int freeUnits = line.quantity / (buyQuantity + freeQuantity) * freeQuantity;
+        return freeUnits * line.item.price;
+    }
+}
+
+// A bundle takes a fixed amount off for every complete set of one unit from each of its categories.
+// Units are consumed as sets are counted, so a unit never counts towards more than one bundle.
+class CategoryBundle extends Promotion {
+    private final String[] categories;
+    private final double discountPerBundle;
+
+    public CategoryBundle(String promotionId, List<String> categories, double discountPerBundle) {
+        super(promotionId);
+        if (categories.size() < 2) throw new IllegalArgumentException("A bundle needs at least two categories.");
+        if (discountPerBundle <= 0) throw new IllegalArgumentException("Discount amount must be positive.");
+        this.categories = categories.toArray(new String[0]);
+        this.discountPerBundle = discountPerBundle;
+    }
+
+    String[] getCategories() { return categories; }
+    public double getDiscountPerBundle() { return discountPerBundle; }
+
+    // Takes as many complete sets as the remaining units allow out of the map and returns their discount
+    public double consume(Map<String, Integer> unusedByCategory) {
+        int bundles = Integer.MAX_VALUE;
+        for (String category : categories) {
+            Integer units = unusedByCategory.get(category);
+            if (units == null) return 0;
+            bundles = Math.min(bundles, units);
+        }
+        if (bundles == 0) return 0;
+        for (String category : categories) unusedByCategory.merge(category, -bundles, Integer::sum);
+        return bundles * discountPerBundle;
+    }
+}
+
+// --- Priced Cart: result of one evaluation ---
+class PricedCart {
+    private final double subtotal, discount;
+    private final List<String> appliedPromotions;
+
+    PricedCart(double subtotal, double discount, List<String> appliedPromotions) {
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.appliedPromotions = appliedPromotions;
+    }
+
+    public double getSubtotal() { return subtotal; }
+    public double getDiscount() { return discount; }
+    public double getTotal() { return subtotal - discount; }
+    public List<String> getAppliedPromotions() { return appliedPromotions; }
+}
+
+// --- Promotion Engine: immutable, precompiled index of active promotions ---
+// Each cart line looks up only the promotions keyed by its item id and category, and takes the single
+// best line discount; bundles are looked up by the categories present in the cart and stack on top.
+class PromotionEngine {
+    private static final LinePromotion[] NO_LINE_PROMOTIONS = new LinePromotion[0];
+    private static final CategoryBundle[] NO_BUNDLES = new CategoryBundle[0];
+    private static final PromotionEngine EMPTY = new Builder().build();
+
+    private final Map<String, LinePromotion[]> byItemId;
+    private final Map<String, LinePromotion[]> byCategory;
+    private final Map<String, CategoryBundle[]> bundlesByCategory;
+    private final int size;
+
+    private PromotionEngine(Map<String, LinePromotion[]> byItemId, Map<String, LinePromotion[]> byCategory,
+            Map<String, CategoryBundle[]> bundlesByCategory, int size) {
+        this.byItemId = byItemId;
+        this.byCategory = byCategory;
+        this.bundlesByCategory = bundlesByCategory;
+        this.size = size;
+    }
+
+    public static PromotionEngine empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public PricedCart price(List<ShoppingItem> items) {
+        Map<String, CartLine> lines = new HashMap<>(items.size() * 2);
+        double subtotal = 0;
+        for (ShoppingItem item : items) {
+            CartLine line = lines.get(item.itemId);
+            if (line == null) {
+                line = new CartLine(item);
+                lines.put(item.itemId, line);
+            }
+            line.quantity++;
+            subtotal += item.price;
+        }
+        if (size == 0) return new PricedCart(subtotal, 0, Collections.emptyList());
+
+        double discount = 0;
+        List<String> applied = new ArrayList<>();
+        Map<String, Integer> unitsByCategory = bundlesByCategory.isEmpty() ? null : new HashMap<>();
+        for (CartLine line : lines.values()) {
+            String category = line.item.getCategory();
+            LinePromotion best = null;
+            double bestDiscount = 0;
+            for (LinePromotion p : byItemId.getOrDefault(line.item.itemId, NO_LINE_PROMOTIONS)) {
+                double d = p.discount(line);
+                if (d > bestDiscount) { bestDiscount = d; best = p; }
+            }
+            for (LinePromotion p : byCategory.getOrDefault(category, NO_LINE_PROMOTIONS)) {
+                double d = p.discount(line);
+                if (d > bestDiscount) { bestDiscount = d; best = p; }
+            }
+            if (best != null) {
+                discount += Math.min(bestDiscount, line.lineTotal());
+                applied.add(best.getPromotionId());
+            }
+            if (unitsByCategory != null) unitsByCategory.merge(category, line.quantity, Integer::sum);
+        }
+
+        if (unitsByCategory != null) {
+            Set<CategoryBundle> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<CategoryBundle> candidates = new ArrayList<>();
+            for (String category : unitsByCategory.keySet()) {
+                for (CategoryBundle bundle : bundlesByCategory.getOrDefault(category, NO_BUNDLES)) {
+                    if (seen.add(bundle)) candidates.add(bundle);
+                }
+            }
+            // Bundles that overlap compete for the same units; the most generous one takes them first
+            candidates.sort(Comparator.comparingDouble(CategoryBundle::getDiscountPerBundle).reversed()
+                    .thenComparing(Promotion::getPromotionId));
+            for (CategoryBundle bundle : candidates) {
+                double d = bundle.consume(unitsByCategory);
+                if (d > 0) {
+                    discount += d;
+                    applied.add(bundle.getPromotionId());
+                }
+            }
+        }
+        return new PricedCart(subtotal, Math.min(discount, subtotal), applied);
+    }
+
+    public static class Builder {
+        private final Map<String, List<LinePromotion>> byItemId = new HashMap<>();
+        private final Map<String, List<LinePromotion>> byCategory = new HashMap<>();
+        private final Map<String, List<CategoryBundle>> bundlesByCategory = new HashMap<>();
+        private int size;
+
+        public Builder add(LinePromotion promotion) {
+            if (promotion.getItemId() != null) {
+                byItemId.computeIfAbsent(promotion.getItemId(), k -> new ArrayList<>()).add(promotion);
+            } else {
+                byCategory.computeIfAbsent(promotion.getCategory(), k -> new ArrayList<>()).add(promotion);
+            }
+            size++;
+            return this;
+        }
+
+        public Builder add(Promotion promotion) {
+            if (promotion instanceof LinePromotion) return add((LinePromotion) promotion);
+            if (promotion instanceof CategoryBundle) return add((CategoryBundle) promotion);
+            throw new IllegalArgumentException("Unsupported promotion: " + promotion.getPromotionId());
+        }
+
+        public Builder add(CategoryBundle bundle) {
+            for (String category : bundle.getCategories()) {
+                bundlesByCategory.computeIfAbsent(category, k -> new ArrayList<>()).add(bundle);
+            }
+            size++;
+            return this;
+        }
+
+        public PromotionEngine build() {
+            Map<String, LinePromotion[]> items = new HashMap<>(byItemId.size() * 2);
+            byItemId.forEach((k, v) -> items.put(k, v.toArray(NO_LINE_PROMOTIONS)));
+            Map<String, LinePromotion[]> categories = new HashMap<>(byCategory.size() * 2);
+            byCategory.forEach((k, v) -> categories.put(k, v.toArray(NO_LINE_PROMOTIONS)));
+            Map<String, CategoryBundle[]> bundles = new HashMap<>(bundlesByCategory.size() * 2);
+            bundlesByCategory.forEach((k, v) -> bundles.put(k, v.toArray(NO_BUNDLES)));
+            return new PromotionEngine(items, categories, bundles, size);
+        }
+    }
+}
+
+// Usage: java PromotionEngineBenchmark [promotions] [cartLines]
+// Prices random carts against an engine of item-targeted promotions plus a few category ones.
+class PromotionEngineBenchmark {
+    public static void main(String[] args) {
+        int promotionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int cartLines = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int itemCount = Math.max(cartLines, promotionCount / 5);
+
+        ShoppingItem[] items = new ShoppingItem[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = new ElectronicsItem("item-" + i, "Item " + i, "", 10 + i % 90, 1_000, 12);
+        }
+        PromotionEngine.Builder builder = new PromotionEngine.Builder();
+        Random random = new Random(42);
+        for (int i = 0; i < promotionCount; i++) {
+            String itemId = "item-" + random.nextInt(itemCount);
+            switch (i % 3) {
+                case 0: builder.add(new PercentageDiscount("pct-" + i, itemId, null, 1 + random.nextInt(50))); break;
+                case 1: builder.add(new FixedDiscount("fix-" + i, itemId, null, 1 + random.nextInt(5))); break;
+                default: builder.add(new BuyXGetYFree("bxgy-" + i, itemId, null, 2, 1)); break;
+            }
+        }
+        builder.add(new PercentageDiscount("electronics-5", null, "Electronics", 5));
+        PromotionEngine engine = builder.build();
+
+        List<List<ShoppingItem>> carts = new ArrayList<>();
+        for (int c = 0; c < 1024; c++) {
+            List<ShoppingItem> cart = new ArrayList<>(cartLines);
+            for (int i = 0; i < cartLines; i++) cart.add(items[random.nextInt(itemCount)]);
+            carts.add(cart);
+        }
+
+        double sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass is warm-up
+            int priced = 0;
+            long start = System.nanoTime(), deadline = start + 3_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                for (List<ShoppingItem> cart : carts) sink += engine.price(cart).getDiscount();
+                priced += carts.size();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (pass == 1) {
+                System.out.printf("%d promotions, %d-line carts: %.2f us per cart (%d carts, checksum %.0f)%n",
+                        engine.size(), cartLines, elapsed / 1000.0 / priced, priced, sink);
+            }
+        }
+    }
+}
+
+class PromotionEngineSelfTest {
+    static void run() {
+        ShoppingItem phone = item("phone", "Phones", 100), phoneCase = item("case", "Cases", 20);
+        ShoppingItem charger = item("charger", "Chargers", 15);
+
+        // Overlapping bundles: each unit counts towards one bundle only, the larger discount first
+        PromotionEngine bundles = new PromotionEngine.Builder()
+                .add(new CategoryBundle("phone-case-10", Arrays.asList("Phones", "Cases"), 10))
+                .add(new CategoryBundle("phone-case-5", Arrays.asList("Phones", "Cases"), 5))
+                .add(new CategoryBundle("phone-charger-4", Arrays.asList("Phones", "Chargers"), 4))
+                .build();
+        PricedCart one = bundles.price(Arrays.asList(phone, phoneCase));
+        SelfTest.checkClose(one.getDiscount(), 10, "one phone and case fill one bundle");
+        SelfTest.check(one.getAppliedPromotions().equals(Arrays.asList("phone-case-10")), "best bundle applied");
+        PricedCart two = bundles.price(Arrays.asList(phone, phone, phoneCase, phoneCase, charger));
+        SelfTest.checkClose(two.getDiscount(), 20, "phones used up by the first bundle");
+        PricedCart split = bundles.price(Arrays.asList(phone, phone, phoneCase, charger));
+        SelfTest.checkClose(split.getDiscount(), 14, "second phone goes to the next bundle");
+
+        // Line promotions: the single best discount per line
+        PromotionEngine lines = new PromotionEngine.Builder()
+                .add(new PercentageDiscount("cases-10pc", null, "Cases", 10))
+                .add(new FixedDiscount("case-3", "case", null, 3))
+                .add(new BuyXGetYFree("charger-2-1", "charger", null, 2, 1))
+                .build();
+        SelfTest.checkClose(lines.price(Arrays.asList(phoneCase)).getDiscount(), 3, "fixed beats percentage");
+        SelfTest.checkClose(lines.price(Arrays.asList(charger, charger, charger)).getDiscount(), 15,
+                "buy two get one free");
+        SelfTest.checkClose(lines.price(Arrays.asList(phone)).getDiscount(), 0, "no promotion for phones");
+
+        // Discounts never exceed the subtotal
+        PromotionEngine generous = new PromotionEngine.Builder()
+                .add(new FixedDiscount("case-50", "case", null, 50))
+                .add(new CategoryBundle("case-charger-100", Arrays.asList("Cases", "Chargers"), 100))
+                .build();
+        PricedCart capped = generous.price(Arrays.asList(phoneCase, charger));
+        SelfTest.checkClose(capped.getTotal(), 0, "discount capped at subtotal");
+    }
+
+    private static ShoppingItem item(String id, String category, double price) {
+        return new ElectronicsItem(id, id, id, price, 10, 12) {
+            @Override
+            public String getCategory() {
+                return category;
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+// --- Risk Scoring: underwriting score for a vehicle and its policy holder ---
+// Every attribute is first reduced to a small bucket index with array lookups, and the score is the sum of
+// two precomputed tables: one over (vehicle type, vehicle age, engine size, flags) and one over
+// (holder age, medical clearance). Both tables are shorts and fit in about 10 KB, so scoring an
+// application is a handful of cache-resident loads with no branching on the attribute values.
+// Scores run from 0 to MAX_SCORE; NEUTRAL_SCORE is a typical private car with a healthy adult driver.
+final class RiskScoring {
+    static final int MAX_SCORE = 1000;
+    static final int NEUTRAL_SCORE = 100;
+    static final int DECLINE_SCORE = 600;
+
+    // Vehicle type: index into TYPES, or TYPES.length for anything else
+    private static final String[] TYPES = { "Car", "Van", "Truck", "Motorcycle", "Bus" };
+    private static final int[] TYPE_POINTS = { 40, 60, 90, 120, 80, 100 };
+
+    // Vehicle age in years; a model year after the valuation year (next year's model sold early) counts as new
+    private static final int[] AGE_UPPER_BOUNDS = { 2, 5, 10, 15, 20, 25 };
+    private static final int[] AGE_POINTS = { 20, 10, 20, 40, 70, 110, 160 };
+    private static final int AGE_BUCKETS = AGE_POINTS.length;
+    private static final byte[] AGE_BUCKET = new byte[AGE_UPPER_BOUNDS[AGE_UPPER_BOUNDS.length - 1] + 2];
+
+    // Engine capacity in cc, looked up per 100 cc
+    private static final int[] ENGINE_UPPER_BOUNDS = { 1000, 1600, 2000, 3000, 4000 };
+    private static final int[] ENGINE_POINTS = { 0, 10, 20, 40, 70, 110 };
+    private static final int ENGINE_BUCKETS = ENGINE_POINTS.length;
+    private static final byte[] ENGINE_BUCKET = new byte[ENGINE_UPPER_BOUNDS[ENGINE_UPPER_BOUNDS.length - 1] / 100 + 1];
+
+    // Flag bits, each adding points when set
+    private static final int COMMERCIAL = 1, NO_SAFETY_CHECK = 2, NO_INSPECTION = 4, NO_REGISTRATION = 8;
+    private static final int FLAG_COMBINATIONS = 16;
+    private static final int[] FLAG_POINTS = { 40, 60, 50, 150 };
+
+    // Holder age in years, one entry per year; under 16 cannot hold a licence and always declines
+    private static final int MAX_HOLDER_AGE = 127;
+    private static final int[] HOLDER_AGE_LOWER_BOUNDS = { 0, 16, 18, 21, 25, 65, 75, 85 };
+    private static final int[] HOLDER_AGE_POINTS = { MAX_SCORE, 150, 90, 60, 20, 40, 80, 140 };
+    private static final int NOT_MEDICALLY_CLEARED_POINTS = 120;
+
+    private static final short[] VEHICLE_TABLE =
+            new short[(TYPES.length + 1) * AGE_BUCKETS * ENGINE_BUCKETS * FLAG_COMBINATIONS];
+    private static final short[] HOLDER_TABLE = new short[(MAX_HOLDER_AGE + 1) * 2];
+    // Premium multiplier per score: 1.0 at NEUTRAL_SCORE, +0.2 per 100 points, never below 0.8
+    private static final double[] LOADING = new double[MAX_SCORE + 1];
+
+    static {
+        for (int age = 0, bucket = 0; age < AGE_BUCKET.length; age++) {
+            if (bucket < AGE_UPPER_BOUNDS.length && age > AGE_UPPER_BOUNDS[bucket]) bucket++;
+            AGE_BUCKET[age] = (byte) bucket;
+        }
+        for (int i = 0, bucket = 0; i < ENGINE_BUCKET.length; i++) {
+            if (bucket < ENGINE_UPPER_BOUNDS.length && i * 100 >= ENGINE_UPPER_BOUNDS[bucket]) bucket++;
+            ENGINE_BUCKET[i] = (byte) bucket;
+        }
+        for (int type = 0; type <= TYPES.length; type++) {
+            for (int age = 0; age < AGE_BUCKETS; age++) {
+                for (int engine = 0; engine < ENGINE_BUCKETS; engine++) {
+                    for (int flags = 0; flags < FLAG_COMBINATIONS; flags++) {
+                        int points = TYPE_POINTS[type] + AGE_POINTS[age] + ENGINE_POINTS[engine];
+                        for (int bit = 0; bit < FLAG_POINTS.length; bit++) {
+                            if ((flags & (1 << bit)) != 0) points += FLAG_POINTS[bit];
+                        }
+                        VEHICLE_TABLE[vehicleIndex(type, age, engine, flags)] = (short) Math.min(points, MAX_SCORE);
+                    }
+                }
+            }
+        }
+        for (int age = 0, bucket = 0; age <= MAX_HOLDER_AGE; age++) {
+            if (bucket + 1 < HOLDER_AGE_LOWER_BOUNDS.length && age >= HOLDER_AGE_LOWER_BOUNDS[bucket + 1]) bucket++;
+            HOLDER_TABLE[age * 2] = (short) HOLDER_AGE_POINTS[bucket];
+            HOLDER_TABLE[age * 2 + 1] = (short) Math.min(HOLDER_AGE_POINTS[bucket] + NOT_MEDICALLY_CLEARED_POINTS, MAX_SCORE);
+        }
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            LOADING[score] = Math.max(0.8, 1 + (score - NEUTRAL_SCORE) * 0.002);
+        }
+    }
+
+    private RiskScoring() {}
+
+    // Vehicle age is measured against the valuation date, so scores move when its year does
+    public static int score(Vehicle vehicle, Person holder) {
+        return score(vehicle, holder, ValuationClock.year());
+    }
+
+    static int score(Vehicle vehicle, Person holder, int valuationYear) {
+        int total = VEHICLE_TABLE[vehicleKey(vehicle, valuationYear)] + HOLDER_TABLE[holderKey(holder)];
+        return Math.min(total, MAX_SCORE);
+    }
+
+    public static boolean declines(int score) {
+        return score >= DECLINE_SCORE;
+    }
+
+    public static double loading(int score) {
+        return LOADING[score];
+    }
+
+    private static int vehicleKey(Vehicle vehicle, int valuationYear) {
+        int age = valuationYear - vehicle.getModelYear();
+        int ageBucket = AGE_BUCKET[Math.min(Math.max(age, 0), AGE_BUCKET.length - 1)];
+        int engineBucket = ENGINE_BUCKET[Math.min(Math.max((int) (vehicle.getEngineCapacity() / 100), 0),
+                ENGINE_BUCKET.length - 1)];
+        int flags = (vehicle.isCommercial() ? COMMERCIAL : 0)
+                | (vehicle.isSafetyChecked() ? 0 : NO_SAFETY_CHECK)
+                | (vehicle.isInspectionValid() ? 0 : NO_INSPECTION)
+                | (vehicle.isRegistrationValid() ? 0 : NO_REGISTRATION);
+        return vehicleIndex(typeBucket(vehicle.getType()), ageBucket, engineBucket, flags);
+    }
+
+    private static int holderKey(Person holder) {
+        int age = Math.min(Math.max(holder.getAge(), 0), MAX_HOLDER_AGE);
+        return age * 2 + (holder.isMedicallyCleared() ? 0 : 1);
+    }
+
+    private static int vehicleIndex(int type, int ageBucket, int engineBucket, int flags) {
+        return ((type * AGE_BUCKETS + ageBucket) * ENGINE_BUCKETS + engineBucket) * FLAG_COMBINATIONS + flags;
+    }
+
+    // equalsIgnoreCase compares lengths first, so a mismatch costs almost nothing
+    private static int typeBucket(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equalsIgnoreCase(type)) return i;
+        }
+        return TYPES.length;
+    }
+}
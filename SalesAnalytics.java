@@ -0,0 +1,270 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class Hashing {
+    private Hashing() {}
+
+    // 64-bit FNV-1a over the chars followed by a murmur3 finalizer; String.hashCode is too narrow for HLL
+    public static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix64(h);
+    }
+
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
+
+// --- Sliding window revenue: a ring of time buckets, each packing (slot tag | cents) into one long ---
+class RevenueWindow {
+    private static final int CENTS_BITS = 40;
+    private static final long CENTS_MASK = (1L << CENTS_BITS) - 1;
+    private static final long TAG_MASK = (1L << (64 - CENTS_BITS)) - 1;
+
+    private final long bucketMillis;
+    private final AtomicLongArray buckets;
+
+    public RevenueWindow(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    public void add(long timeMillis, long cents) {
+        long slot = timeMillis / bucketMillis;
+        int index = (int) (slot % buckets.length());
+        long tag = slot & TAG_MASK;
+        while (true) {
+            long current = buckets.get(index);
+            long currentTag = current >>> CENTS_BITS;
+            long next;
+            if (currentTag == tag) {
+                next = current + cents;
+            } else if (current != 0 && ((tag - currentTag) & TAG_MASK) > (TAG_MASK >>> 1)) {
+                return; // late event for a slot this bucket has already moved past
+            } else {
+                next = (tag << CENTS_BITS) | (cents & CENTS_MASK); // bucket belongs to an older slot: recycle it
+            }
+            if (buckets.compareAndSet(index, current, next)) return;
+        }
+    }
+
+    // Sum of every bucket whose slot falls inside the window ending at nowMillis
+    public long totalCents(long nowMillis) {
+        long currentSlot = nowMillis / bucketMillis;
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            long value = buckets.get(i);
+            long age = (currentSlot - (value >>> CENTS_BITS)) & TAG_MASK;
+            if (age < buckets.length()) total += value & CENTS_MASK;
+        }
+        return total;
+    }
+}
+
+// --- Count-min sketch over item ids ---
+class CountMinSketch {
+    private final int depth, widthMask;
+    private final AtomicLongArray counts;
+
+    public CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) throw new IllegalArgumentException("Width must be a power of two.");
+        this.depth = depth;
+        this.widthMask = width - 1;
+        this.counts = new AtomicLongArray(depth * width);
+    }
+
+    // Adds and returns the updated estimate in one pass
+    public long add(long hash, long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long v = counts.addAndGet(index(row, hash), count);
+            if (v < estimate) estimate = v;
+        }
+        return estimate;
+    }
+
+    public long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long v = counts.get(index(row, hash));
+            if (v < estimate) estimate = v;
+        }
+        return estimate;
+    }
+
+    private int index(int row, long hash) {
+        // Kirsch-Mitzenmacher: derive each row's hash from the two halves of one 64-bit hash
+        int h = (int) hash + row * (int) (hash >>> 32);
+        return row * (widthMask + 1) + (h & widthMask);
+    }
+}
+
+// --- Top-K heavy hitters: a min-heap of at most K candidates, ranked by count-min estimates ---
+class TopK {
+    private static final class Entry {
+        final String key;
+        long count;
+
+        Entry(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+
+    private final int k;
+    private final PriorityQueue<Entry> heap;
+    private final Map<String, Entry> members;
+    private volatile long admissionFloor;
+
+    public TopK(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(k, Comparator.comparingLong(e -> e.count));
+        this.members = new HashMap<>(k * 2);
+    }
+
+    public void offer(String key, long estimate) {
+        // Unsynchronized fast reject: most updates are for items that cannot enter the heap
+        if (estimate <= admissionFloor) return;
+        synchronized (this) {
+            Entry entry = members.get(key);
+            if (entry != null) {
+                heap.remove(entry);
+                entry.count = estimate;
+                heap.add(entry);
+            } else if (heap.size() < k) {
+                entry = new Entry(key, estimate);
+                members.put(key, entry);
+                heap.add(entry);
+            } else if (estimate > heap.peek().count) {
+                members.remove(heap.poll().key);
+                entry = new Entry(key, estimate);
+                members.put(key, entry);
+                heap.add(entry);
+            }
+            if (heap.size() == k) admissionFloor = heap.peek().count;
+        }
+    }
+
+    public synchronized List<Map.Entry<String, Long>> snapshot() {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(heap.size());
+        for (Entry e : heap) result.add(new AbstractMap.SimpleImmutableEntry<>(e.key, e.count));
+        result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return result;
+    }
+}
+
+// --- HyperLogLog distinct counter (2^precision registers) ---
+class HyperLogLog {
+    private final int precision;
+    private final AtomicIntegerArray registers;
+
+    public HyperLogLog(int precision) {
+        this.precision = precision;
+        this.registers = new AtomicIntegerArray(1 << precision);
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        while (true) {
+            int current = registers.get(index);
+            if (rank <= current || registers.compareAndSet(index, current, rank)) return;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length();
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int r = registers.get(i);
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) estimate = m * Math.log((double) m / zeros); // linear counting
+        return Math.round(estimate);
+    }
+}
+
+// --- Sales Snapshot: an immutable, point-in-time view of the analytics ---
+class SalesSnapshot {
+    private final long takenAtMillis, ordersSeen, distinctCustomers;
+    private final double revenueLastMinute, revenueLastHour;
+    private final List<Map.Entry<String, Long>> topItems;
+
+    SalesSnapshot(long takenAtMillis, long ordersSeen, double revenueLastMinute, double revenueLastHour,
+            List<Map.Entry<String, Long>> topItems, long distinctCustomers) {
+        this.takenAtMillis = takenAtMillis;
+        this.ordersSeen = ordersSeen;
+        this.revenueLastMinute = revenueLastMinute;
+        this.revenueLastHour = revenueLastHour;
+        this.topItems = Collections.unmodifiableList(topItems);
+        this.distinctCustomers = distinctCustomers;
+    }
+
+    public long getTakenAtMillis() { return takenAtMillis; }
+    public long getOrdersSeen() { return ordersSeen; }
+    public double getRevenueLastMinute() { return revenueLastMinute; }
+    public double getRevenueLastHour() { return revenueLastHour; }
+    public List<Map.Entry<String, Long>> getTopItems() { return topItems; }
+    public long getDistinctCustomers() { return distinctCustomers; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Sales Analytics:\n");
+        sb.append("Orders Seen: ").append(ordersSeen).append('\n');
+        sb.append("Revenue (last minute): $").append(revenueLastMinute).append('\n');
+        sb.append("Revenue (last hour): $").append(revenueLastHour).append('\n');
+        sb.append("Distinct Customers (approx.): ").append(distinctCustomers).append('\n');
+        sb.append("Top Items:");
+        for (Map.Entry<String, Long> e : topItems) sb.append("\n- ").append(e.getKey()).append(": ").append(e.getValue());
+        return sb.toString();
+    }
+}
+
+// --- Sales Analytics: fixed-memory stream stage fed by completed orders ---
+class SalesAnalytics {
+    private final RevenueWindow perMinute = new RevenueWindow(1_000, 60);
+    private final RevenueWindow perHour = new RevenueWindow(60_000, 60);
+    private final CountMinSketch itemCounts = new CountMinSketch(4, 4096);
+    private final TopK topItems;
+    private final HyperLogLog customers = new HyperLogLog(14);
+    private final AtomicLong ordersSeen = new AtomicLong();
+
+    public SalesAnalytics(int topK) {
+        this.topItems = new TopK(topK);
+    }
+
+    public void record(OrderRecord order) {
+        long cents = Math.round(order.getAmountPaid() * 100);
+        perMinute.add(order.getCreatedAtMillis(), cents);
+        perHour.add(order.getCreatedAtMillis(), cents);
+        for (OrderLine line : order.getLines()) {
+            long estimate = itemCounts.add(Hashing.hash64(line.getItemId()), line.getQuantity());
+            topItems.offer(line.getItemId(), estimate);
+        }
+        customers.add(Hashing.hash64(order.getCustomerId()));
+        ordersSeen.incrementAndGet();
+    }
+
+    public long estimateUnitsSold(String itemId) {
+        return itemCounts.estimate(Hashing.hash64(itemId));
+    }
+
+    // Reads the live structures without pausing writers; figures may be a few updates apart
+    public SalesSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        return new SalesSnapshot(now, ordersSeen.get(), perMinute.totalCents(now) / 100.0,
+                perHour.totalCents(now) / 100.0, topItems.snapshot(), customers.estimate());
+    }
+}
@@ -0,0 +1,32 @@
+// --- Self-tests: a small runnable check per subsystem, run by the image build (java SelfTest) ---
+// Each check builds its own objects and files; none touches the shared subsystems or the snapshot.
+final class SelfTest {
+    private SelfTest() {}
+
+    public static void main(String[] args) throws Exception {
+        OrderJournalSelfTest.run();
+        IdGeneratorSelfTest.run();
+        InventoryRingBufferSelfTest.run();
+        ClaimScreenSelfTest.run();
+        StateSnapshotSelfTest.run();
+        PromotionEngineSelfTest.run();
+        System.out.println("Self-tests passed.");
+    }
+
+    static void check(boolean ok, String what) {
+        if (!ok) throw new AssertionError("Self-test failed: " + what);
+    }
+
+    static void checkRejected(Runnable action, String what) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        throw new AssertionError("Self-test failed: " + what + " was not rejected");
+    }
+
+    static void checkClose(double actual, double expected, String what) {
+        check(Math.abs(actual - expected) < 1e-9, what + ": expected " + expected + " but was " + actual);
+    }
+}
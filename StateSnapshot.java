@@ -0,0 +1,650 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// One subsystem's state within the snapshot; each is decoded only when its subsystem is first used
+enum SnapshotSection {
+    POLICIES, STOCK, CATALOG, CUSTOMERS, CLAIMS, PROMOTIONS
+}
+
+// --- Snapshot Output: counts and checksums bytes on their way to the file ---
+class SnapshotOutput extends FilterOutputStream {
+    private final CRC32 crc = new CRC32();
+    private long position;
+
+    SnapshotOutput(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        crc.update(b);
+        position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        crc.update(b, off, len);
+        position += len;
+    }
+
+    long position() { return position; }
+
+    // Returns the checksum of everything written since the previous call
+    long takeChecksum() {
+        long value = crc.getValue();
+        crc.reset();
+        return value;
+    }
+}
+
+// --- State Snapshot: binary image of all three subsystems, written at shutdown and mapped at boot ---
+// Layout: [section bytes...][table: count, then (section, offset, length, crc32) each][table offset][magic].
+// The table sits at the end so the file is written in one streaming pass. At boot only the table is read;
+// each section is mapped and decoded by its subsystem's static initializer, so a run that never opens the
+// shop never pays for the catalog, and a section that was never decoded is copied through unchanged.
+final class StateSnapshot {
+    private static final int MAGIC = 0x56575331; // "VWS1"
+    private static final int TRAILER = 12;
+    // Promotion kinds in the PROMOTIONS section
+    private static final int PERCENTAGE = 0, FIXED = 1, BUY_X_GET_Y = 2, BUNDLE = 3;
+    private static final SnapshotSection[] SECTIONS = SnapshotSection.values();
+
+    private static final Path FILE = Paths.get(System.getProperty("snapshot.file",
+            System.getenv().getOrDefault("SNAPSHOT_FILE", "state.snapshot")));
+    private static final ByteBuffer[] mapped = new ByteBuffer[SECTIONS.length];
+    private static final long[] checksums = new long[SECTIONS.length];
+    private static final boolean[] restored = new boolean[SECTIONS.length];
+
+    static {
+        try {
+            map();
+        } catch (IOException | RuntimeException e) {
+            Arrays.fill(mapped, null);
+            System.out.println("Ignoring unreadable snapshot " + FILE + ": " + e);
+        }
+    }
+
+    private StateSnapshot() {}
+
+    private static void map() throws IOException {
+        if (!Files.exists(FILE)) return;
+        try (FileChannel channel = FileChannel.open(FILE, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER) throw new IOException("file too short");
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER);
+            channel.read(trailer, size - TRAILER);
+            trailer.flip();
+            long tableOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || tableOffset < 0 || tableOffset > size - TRAILER - 4)
+                throw new IOException("bad trailer");
+            ByteBuffer table = ByteBuffer.allocate((int) (size - TRAILER - tableOffset));
+            channel.read(table, tableOffset);
+            table.flip();
+            int count = table.getInt();
+            for (int i = 0; i < count; i++) {
+                int section = table.getInt();
+                long offset = table.getLong(), length = table.getLong(), crc = table.getLong();
+                if (section < 0 || section >= SECTIONS.length) continue; // written by a newer version
+                if (offset < 0 || offset + length > tableOffset) throw new IOException("bad section bounds");
+                // Mapping is lazy: pages are only read when the section is decoded
+                mapped[section] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                checksums[section] = crc;
+            }
+        }
+    }
+
+    // Called once per section by its subsystem; returns null when there is nothing valid to restore
+    private static synchronized ByteBuffer open(SnapshotSection section) {
+        int i = section.ordinal();
+        restored[i] = true;
+        ByteBuffer buf = mapped[i];
+        mapped[i] = null;
+        if (buf == null) return null;
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate());
+        if (crc.getValue() != checksums[i]) {
+            System.out.println("Snapshot section " + section + " is corrupt; starting it empty.");
+            return null;
+        }
+        return buf;
+    }
+
+    // --- Restore, one method per section ---
+
+    static void restorePolicies(PolicyBook book) {
+        ByteBuffer buf = open(SnapshotSection.POLICIES);
+        if (buf == null) return;
+        // Types and dates repeat across millions of policies; sharing them keeps the restored heap small
+        Map<String, String> strings = new HashMap<>();
+        Map<Long, LocalDate> dates = new HashMap<>();
+        for (int n = buf.getInt(); n > 0; n--) {
+            String policyType = getString(buf), policyId = getString(buf);
+            Vehicle vehicle = new Vehicle(shared(strings, getString(buf)), buf.getInt(), buf.getDouble(),
+                    buf.get() != 0, buf.get() != 0, buf.get() != 0, buf.get() != 0);
+            Person holder = new Person(getString(buf), buf.getInt(), buf.get() != 0);
+            InsurancePolicy policy = MotorVehicleInsuranceSystem.createPolicy(policyType, policyId, vehicle, holder,
+                    buf.getDouble());
+            policy.setPremiumAmount(buf.getDouble());
+            policy.setPolicyStartDate(dates.computeIfAbsent(buf.getLong(), LocalDate::ofEpochDay));
+            policy.setPolicyEndDate(dates.computeIfAbsent(buf.getLong(), LocalDate::ofEpochDay));
+            if (buf.get() == 0) policy.clearDirty();
+            book.add(policy);
+        }
+        // Snapshots from before the priced year was saved give no year, so every date-sensitive policy re-prices
+        book.restoreLastPricedYear(buf.hasRemaining() ? buf.getInt() : Integer.MIN_VALUE);
+    }
+
+    // Runs after restorePolicies; every claim is replayed into the screen so duplicates and velocity carry over
+    static void restoreClaims(PolicyBook book) {
+        ByteBuffer buf = open(SnapshotSection.CLAIMS);
+        if (buf == null) return;
+        ClaimScreen screen = ClaimScreen.shared();
+        long now = System.currentTimeMillis();
+        for (int n = buf.getInt(); n > 0; n--) {
+            InsurancePolicy policy = book.find(getString(buf));
+            for (int c = getVarint(buf); c > 0; c--) {
+                ClaimRecord claim = new ClaimRecord(buf.getDouble(), LocalDate.ofEpochDay(buf.getLong()), buf.getLong());
+                if (policy != null && policy.addClaim(claim)) screen.remember(policy, claim, now);
+            }
+        }
+    }
+
+    static void restoreStock(List<StockItem> items, Map<String, StockItem> itemsById) {
+        ByteBuffer buf = open(SnapshotSection.STOCK);
+        if (buf == null) return;
+        Map<String, Integer> held = readStock(buf, items, itemsById);
+        for (Map.Entry<String, Integer> e : held.entrySet()) {
+            InventoryBus.shared().publishReservation(e.getKey(), e.getValue());
+        }
+    }
+
+    static void restoreCatalog(Map<String, ShoppingItem> catalog) {
+        ByteBuffer buf = open(SnapshotSection.CATALOG);
+        if (buf != null) readCatalog(buf, catalog);
+    }
+
+    static void restoreCustomers(CustomerRegistry customers) {
+        ByteBuffer buf = open(SnapshotSection.CUSTOMERS);
+        if (buf != null) readCustomers(buf, customers);
+    }
+
+    static List<Promotion> restorePromotions() {
+        ByteBuffer buf = open(SnapshotSection.PROMOTIONS);
+        return buf == null ? new ArrayList<>() : readPromotions(buf);
+    }
+
+    // --- Section decoders: fill the given structures, touching no subsystem ---
+
+    // Returns the reservations still waiting for their ledger entry, by item
+    static Map<String, Integer> readStock(ByteBuffer buf, List<StockItem> items, Map<String, StockItem> itemsById) {
+        Map<String, String> strings = new HashMap<>();
+        for (int n = buf.getInt(); n > 0; n--) {
+            String category = getString(buf), itemId = getString(buf), itemName = getString(buf);
+            String supplier = shared(strings, getString(buf));
+            int quantity = buf.getInt();
+            double price = buf.getDouble();
+            StockItem item;
+            switch (category) {
+                case "Electronics":
+                    item = new ElectronicItem(itemId, itemName, 0, price, supplier, buf.getInt(), buf.getDouble());
+                    break;
+                case "Clothing":
+                    item = new ClothingItem(itemId, itemName, 0, price, supplier, getStrings(buf), getStrings(buf),
+                            buf.get() != 0);
+                    break;
+                case "Groceries":
+                    item = new GroceryItem(itemId, itemName, 0, price, supplier, getDate(buf));
+                    break;
+                case "Furniture":
+                    item = new FurnitureItem(itemId, itemName, 0, price, supplier, buf.getDouble());
+                    break;
+                case "Perishable":
+                    item = new PerishableItem(itemId, itemName, 0, price, supplier, getDate(buf));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown stock category in snapshot: " + category);
+            }
+            // Set directly: reservations can legitimately take stock below what the constructor accepts
+            item.quantityInStock = quantity;
+            items.add(item);
+            // Older snapshots can hold a duplicate ID; keep only the later row, which is the one the bus tracked
+            StockItem previous = itemsById.put(itemId, item);
+            if (previous != null) items.remove(previous);
+        }
+        // Absent in snapshots from before held reservations were saved
+        Map<String, Integer> held = new LinkedHashMap<>();
+        if (!buf.hasRemaining()) return held;
+        for (int n = getVarint(buf); n > 0; n--) {
+            String itemId = getString(buf);
+            held.put(itemId, buf.getInt());
+        }
+        return held;
+    }
+
+    static void readCatalog(ByteBuffer buf, Map<String, ShoppingItem> catalog) {
+        for (int n = buf.getInt(); n > 0; n--) {
+            ElectronicsItem item = new ElectronicsItem(getString(buf), getString(buf), getString(buf), buf.getDouble(),
+                    0, buf.getInt());
+            item.stockAvailable = buf.getInt();
+            catalog.put(item.itemId, item);
+        }
+    }
+
+    static void readCustomers(ByteBuffer buf, CustomerRegistry customers) {
+        for (int n = buf.getInt(); n > 0; n--) {
+            customers.register(new Customer(getString(buf), getString(buf), getString(buf), getString(buf),
+                    getString(buf)));
+        }
+    }
+
+    static List<Promotion> readPromotions(ByteBuffer buf) {
+        List<Promotion> promotions = new ArrayList<>();
+        for (int n = buf.getInt(); n > 0; n--) {
+            int kind = buf.get();
+            String id = getString(buf);
+            if (kind == BUNDLE) {
+                promotions.add(new CategoryBundle(id, getStrings(buf), buf.getDouble()));
+                continue;
+            }
+            String itemId = getString(buf), category = getString(buf);
+            switch (kind) {
+                case PERCENTAGE:
+                    promotions.add(new PercentageDiscount(id, itemId, category, buf.getDouble()));
+                    break;
+                case FIXED:
+                    promotions.add(new FixedDiscount(id, itemId, category, buf.getDouble()));
+                    break;
+                case BUY_X_GET_Y:
+                    promotions.add(new BuyXGetYFree(id, itemId, category, buf.getInt(), buf.getInt()));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown promotion kind in snapshot: " + kind);
+            }
+        }
+        return promotions;
+    }
+
+    // --- Save ---
+
+    // Writes the snapshot if any section was restored (and so may have changed) during this run
+    public static synchronized void save() throws IOException {
+        boolean touched = false;
+        for (boolean r : restored) touched |= r;
+        if (!touched) return;
+        // Settle recorded orders into the ledger first. Units in carts that were never checked out are not
+        // saved as reserved: those carts do not survive the restart, so the units are available again.
+        if (!InventoryBus.shared().awaitDrained(5_000)) System.out.println("Inventory events still pending at save.");
+
+        Path temp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        long[][] table = new long[SECTIONS.length][];
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            SnapshotOutput counted = new SnapshotOutput(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counted, 1 << 16));
+            for (SnapshotSection section : SECTIONS) {
+                int i = section.ordinal();
+                long offset = counted.position();
+                counted.takeChecksum();
+                if (restored[i]) writeSection(section, out);
+                else if (mapped[i] != null) copy(mapped[i], out);
+                else out.writeInt(0);
+                out.flush();
+                table[i] = new long[] { offset, counted.position() - offset, counted.takeChecksum() };
+            }
+            long tableOffset = counted.position();
+            out.writeInt(SECTIONS.length);
+            for (int i = 0; i < SECTIONS.length; i++) {
+                out.writeInt(i);
+                for (long v : table[i]) out.writeLong(v);
+            }
+            out.writeLong(tableOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void saveOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                System.out.println("Error writing snapshot: " + e.getMessage());
+            }
+        }, "snapshot-writer"));
+    }
+
+    // Starts decoding every section in the background so the first request does not wait for it
+    public static void prewarm() {
+        startDaemon("restore-policies", () -> MotorVehicleInsuranceSystem.book.size());
+        startDaemon("restore-stock", () -> StockManagementSystem.itemsById.size());
+        startDaemon("restore-shop", () -> OnlineShoppingSystem.catalog.size());
+    }
+
+    private static void startDaemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Only called for restored sections, so the subsystem classes are already initialized
+    private static void writeSection(SnapshotSection section, DataOutputStream out) throws IOException {
+        switch (section) {
+            case POLICIES:
+                List<InsurancePolicy> policies = new ArrayList<>(MotorVehicleInsuranceSystem.book.all());
+                out.writeInt(policies.size());
+                for (InsurancePolicy policy : policies) writePolicy(policy, out);
+                out.writeInt(MotorVehicleInsuranceSystem.book.getLastPricedYear());
+                break;
+            case STOCK:
+                List<StockItem> items;
+                synchronized (StockManagementSystem.items) {
+                    items = new ArrayList<>(StockManagementSystem.items);
+                }
+                writeStock(items, InventoryBus.shared().heldReservations(), out);
+                break;
+            case CATALOG:
+                writeCatalog(new ArrayList<>(OnlineShoppingSystem.catalog.values()), out);
+                break;
+            case CLAIMS:
+                Map<String, List<ClaimRecord>> claimsByPolicy = new LinkedHashMap<>();
+                for (InsurancePolicy policy : MotorVehicleInsuranceSystem.book.all()) {
+                    List<ClaimRecord> claims = policy.getClaims();
+                    if (!claims.isEmpty()) claimsByPolicy.put(policy.getPolicyId(), claims);
+                }
+                out.writeInt(claimsByPolicy.size());
+                for (Map.Entry<String, List<ClaimRecord>> e : claimsByPolicy.entrySet()) {
+                    putString(out, e.getKey());
+                    putVarint(out, e.getValue().size());
+                    for (ClaimRecord claim : e.getValue()) {
+                        out.writeDouble(claim.getAmount());
+                        out.writeLong(claim.getClaimDate().toEpochDay());
+                        out.writeLong(claim.getSubmittedAtMillis());
+                    }
+                }
+                break;
+            case PROMOTIONS:
+                writePromotions(OnlineShoppingSystem.promotionList(), out);
+                break;
+            case CUSTOMERS:
+                writeCustomers(new ArrayList<>(OnlineShoppingSystem.customers.all()), out);
+                break;
+        }
+    }
+
+    // --- Section encoders: the inverse of the decoders above ---
+
+    static void writeStock(List<StockItem> items, Map<String, Integer> held, DataOutputStream out) throws IOException {
+        out.writeInt(items.size());
+        for (StockItem item : items) writeStockItem(item, out);
+        putVarint(out, held.size());
+        for (Map.Entry<String, Integer> e : held.entrySet()) {
+            putString(out, e.getKey());
+            out.writeInt(e.getValue());
+        }
+    }
+
+    static void writeCatalog(List<ShoppingItem> catalog, DataOutputStream out) throws IOException {
+        out.writeInt(catalog.size());
+        for (ShoppingItem item : catalog) {
+            ElectronicsItem e = (ElectronicsItem) item;
+            putString(out, e.itemId);
+            putString(out, e.itemName);
+            putString(out, e.itemDescription);
+            out.writeDouble(e.price);
+            out.writeInt(e.getWarrantyMonths());
+            out.writeInt(e.stockAvailable);
+        }
+    }
+
+    static void writeCustomers(List<Customer> customers, DataOutputStream out) throws IOException {
+        out.writeInt(customers.size());
+        for (Customer c : customers) {
+            putString(out, c.getCustomerId());
+            putString(out, c.getCustomerName());
+            putString(out, c.getEmail());
+            putString(out, c.getAddress());
+            putString(out, c.getPhone());
+        }
+    }
+
+    static void writePromotions(List<Promotion> promotions, DataOutputStream out) throws IOException {
+        out.writeInt(promotions.size());
+        for (Promotion promotion : promotions) writePromotion(promotion, out);
+    }
+
+    private static void writePolicy(InsurancePolicy policy, DataOutputStream out) throws IOException {
+        Vehicle v = policy.getVehicle();
+        Person p = policy.getPolicyHolder();
+        putString(out, MotorVehicleInsuranceSystem.policyTypeOf(policy));
+        putString(out, policy.getPolicyId());
+        putString(out, v.getType());
+        out.writeInt(v.getModelYear());
+        out.writeDouble(v.getEngineCapacity());
+        out.writeBoolean(v.isSafetyChecked());
+        out.writeBoolean(v.isRegistrationValid());
+        out.writeBoolean(v.isInspectionValid());
+        out.writeBoolean(v.isCommercial());
+        putString(out, p.getName());
+        out.writeInt(p.getAge());
+        out.writeBoolean(p.isMedicallyCleared());
+        out.writeDouble(policy.getCoverageAmount());
+        out.writeDouble(policy.getPremiumAmount());
+        out.writeLong(policy.getPolicyStartDate().toEpochDay());
+        out.writeLong(policy.getPolicyEndDate().toEpochDay());
+        out.writeBoolean(policy.isDirty());
+    }
+
+    private static void writePromotion(Promotion promotion, DataOutputStream out) throws IOException {
+        if (promotion instanceof CategoryBundle) {
+            CategoryBundle bundle = (CategoryBundle) promotion;
+            out.writeByte(BUNDLE);
+            putString(out, bundle.getPromotionId());
+            putStrings(out, Arrays.asList(bundle.getCategories()));
+            out.writeDouble(bundle.getDiscountPerBundle());
+            return;
+        }
+        LinePromotion line = (LinePromotion) promotion;
+        int kind = line instanceof PercentageDiscount ? PERCENTAGE : line instanceof FixedDiscount ? FIXED : BUY_X_GET_Y;
+        out.writeByte(kind);
+        putString(out, line.getPromotionId());
+        putString(out, line.getItemId());
+        putString(out, line.getCategory());
+        if (line instanceof PercentageDiscount) {
+            out.writeDouble(((PercentageDiscount) line).getPercent());
+        } else if (line instanceof FixedDiscount) {
+            out.writeDouble(((FixedDiscount) line).getAmountPerUnit());
+        } else {
+            out.writeInt(((BuyXGetYFree) line).getBuyQuantity());
+            out.writeInt(((BuyXGetYFree) line).getFreeQuantity());
+        }
+    }
+
+    private static void writeStockItem(StockItem item, DataOutputStream out) throws IOException {
+        putString(out, item.category);
+        putString(out, item.itemId);
+        putString(out, item.itemName);
+        putString(out, item.supplier);
+        out.writeInt(item.quantityInStock);
+        out.writeDouble(item.pricePerUnit);
+        if (item instanceof ElectronicItem) {
+            out.writeInt(((ElectronicItem) item).getWarrantyPeriod());
+            out.writeDouble(((ElectronicItem) item).getDiscount());
+        } else if (item instanceof ClothingItem) {
+            putStrings(out, ((ClothingItem) item).getSizes());
+            putStrings(out, ((ClothingItem) item).getColors());
+            out.writeBoolean(((ClothingItem) item).hasDiscount());
+        } else if (item instanceof GroceryItem) {
+            putDate(out, ((GroceryItem) item).getExpirationDate());
+        } else if (item instanceof FurnitureItem) {
+            out.writeDouble(((FurnitureItem) item).getWeight());
+        } else if (item instanceof PerishableItem) {
+            putDate(out, ((PerishableItem) item).getExpirationDate());
+        }
+    }
+
+    private static void copy(ByteBuffer section, DataOutputStream out) throws IOException {
+        ByteBuffer src = section.duplicate();
+        byte[] chunk = new byte[1 << 16];
+        while (src.hasRemaining()) {
+            int n = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+
+    // --- Encoding helpers: strings are a varint of (UTF-8 length + 1), 0 meaning null ---
+
+    static void putString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarint(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String getString(ByteBuffer buf) {
+        int len = getVarint(buf) - 1;
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Returns one canonical instance per distinct value, up to a bound so unique values cannot grow it forever
+    private static String shared(Map<String, String> strings, String s) {
+        if (s == null) return null;
+        String existing = strings.get(s);
+        if (existing != null) return existing;
+        if (strings.size() < 4096) strings.put(s, s);
+        return s;
+    }
+
+    private static void putStrings(DataOutput out, List<String> list) throws IOException {
+        putVarint(out, list.size());
+        for (String s : list) putString(out, s);
+    }
+
+    private static List<String> getStrings(ByteBuffer buf) {
+        int n = getVarint(buf);
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(getString(buf));
+        return list;
+    }
+
+    private static void putDate(DataOutput out, Date date) throws IOException {
+        out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+    }
+
+    // The console stores expiry dates as java.sql.Date, whose toString the stock report relies on
+    private static Date getDate(ByteBuffer buf) {
+        long millis = buf.getLong();
+        return millis == Long.MIN_VALUE ? null : new java.sql.Date(millis);
+    }
+
+    static void putVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int getVarint(ByteBuffer buf) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = buf.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
+
+// --- Self-test: encoding helpers and section round trips in memory (run by SelfTest) ---
+// Each section is encoded, decoded and encoded again; the two encodings must match byte for byte.
+// The file container (section table, CRCs, lazy mapping) needs a restart to exercise and is not covered here.
+class StateSnapshotSelfTest {
+    interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final int[] VARINTS = { 0, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, -1 };
+    private static final String UNICODE = "Zo\u00eb \u2013 \u6771\u4eac";
+
+    static void run() throws IOException {
+        ByteBuffer helpers = ByteBuffer.wrap(encode(out -> {
+            for (int v : VARINTS) StateSnapshot.putVarint(out, v);
+            for (String s : new String[] { null, "", UNICODE, "x".repeat(300) }) StateSnapshot.putString(out, s);
+        }));
+        for (int v : VARINTS) SelfTest.check(StateSnapshot.getVarint(helpers) == v, "varint " + v);
+        SelfTest.check(StateSnapshot.getString(helpers) == null, "null string");
+        SelfTest.check(StateSnapshot.getString(helpers).isEmpty(), "empty string");
+        SelfTest.check(StateSnapshot.getString(helpers).equals(UNICODE), "non-ASCII string");
+        SelfTest.check(StateSnapshot.getString(helpers).length() == 300 && !helpers.hasRemaining(), "long string");
+
+        // Stock: every category, a count taken below zero by reservations, a missing date, held reservations
+        List<StockItem> items = new ArrayList<>();
+        items.add(new ElectronicItem("E1", "Laptop", 0, 999.5, "Acme", 24, 5));
+        items.add(new ClothingItem("C1", "Shirt", 0, 20, "Weave", Arrays.asList("S", "M"), Arrays.asList("Red"), true));
+        items.add(new GroceryItem("G1", "Rice", 0, 2.5, "Farm", new java.sql.Date(1_700_000_000_000L)));
+        items.add(new FurnitureItem("F1", "Desk", 0, 150, "Oak & Co", 32.5));
+        items.add(new PerishableItem("P1", "Milk", 0, 1.2, null, null));
+        items.get(0).quantityInStock = -2;
+        Map<String, Integer> held = new LinkedHashMap<>();
+        held.put("NEW-1", 3);
+        byte[] stock = encode(out -> StateSnapshot.writeStock(items, held, out));
+        List<StockItem> stockBack = new ArrayList<>();
+        Map<String, Integer> heldBack = StateSnapshot.readStock(ByteBuffer.wrap(stock), stockBack, new HashMap<>());
+        SelfTest.check(Arrays.equals(stock, encode(out -> StateSnapshot.writeStock(stockBack, heldBack, out))),
+                "stock round trip");
+        SelfTest.check(stockBack.get(0).quantityInStock == -2 && heldBack.equals(held), "stock counts and holds");
+
+        List<ShoppingItem> catalog = new ArrayList<>();
+        catalog.add(new ElectronicsItem("E1", "Laptop", "14-inch", 999.5, 7, 24));
+        catalog.add(new ElectronicsItem("E2", "Phone", null, 499, 3, 12));
+        byte[] catalogBytes = encode(out -> StateSnapshot.writeCatalog(catalog, out));
+        Map<String, ShoppingItem> catalogBack = new LinkedHashMap<>();
+        StateSnapshot.readCatalog(ByteBuffer.wrap(catalogBytes), catalogBack);
+        List<ShoppingItem> catalogList = new ArrayList<>(catalogBack.values());
+        SelfTest.check(Arrays.equals(catalogBytes, encode(out -> StateSnapshot.writeCatalog(catalogList, out))),
+                "catalog round trip");
+        SelfTest.check(catalogBack.get("E1").stockAvailable == 7, "catalog stock");
+
+        List<Customer> customers = Arrays.asList(
+                new Customer("C1", "Ana Silva", "ana@example.com", "1 Main St", "0400 555 100"),
+                new Customer("C2", "Lee Park", "lee@example.com", "2 High St", "0400 555 101"));
+        byte[] customerBytes = encode(out -> StateSnapshot.writeCustomers(customers, out));
+        CustomerRegistry registry = new CustomerRegistry();
+        StateSnapshot.readCustomers(ByteBuffer.wrap(customerBytes), registry);
+        SelfTest.check(registry.size() == 2 && registry.findByEmail("lee@example.com") != null, "customers restored");
+
+        List<Promotion> promotions = Arrays.asList(new PercentageDiscount("P10", null, "Phones", 10),
+                new FixedDiscount("F5", "E1", null, 5), new BuyXGetYFree("B2G1", "E2", null, 2, 1),
+                new CategoryBundle("BUNDLE", Arrays.asList("Phones", "Cases"), 15));
+        byte[] promotionBytes = encode(out -> StateSnapshot.writePromotions(promotions, out));
+        List<Promotion> promotionsBack = StateSnapshot.readPromotions(ByteBuffer.wrap(promotionBytes));
+        SelfTest.check(Arrays.equals(promotionBytes, encode(out -> StateSnapshot.writePromotions(promotionsBack, out))),
+                "promotions round trip");
+        SelfTest.check(promotionsBack.get(3) instanceof CategoryBundle, "promotion kinds kept");
+    }
+
+    private static byte[] encode(Encoder encoder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        encoder.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
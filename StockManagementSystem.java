@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 // --- Abstract Class ---
 abstract class StockItem {
@@ -23,6 +24,11 @@ abstract class StockItem {
 
     public abstract void updateStock(int quantity);
 
+    // Takes sold units out of the ledger, never going below zero; callers hold the item's monitor
+    public void takeStock(int quantity) {
+        quantityInStock = Math.max(0, quantityInStock - quantity);
+    }
+
     public abstract double calculateStockValue();
 
     public abstract void generateStockReport();
@@ -47,6 +53,9 @@ class ElectronicItem extends StockItem {
         this.discount = discount;
     }
 
+    public int getWarrantyPeriod() { return warrantyPeriod; }
+    public double getDiscount() { return discount; }
+
     public void applyDiscount() {
         pricePerUnit -= (pricePerUnit * discount / 100);
     }
@@ -86,6 +95,10 @@ class ClothingItem extends StockItem {
         this.hasDiscount = hasDiscount;
     }
 
+    public List<String> getSizes() { return sizes; }
+    public List<String> getColors() { return colors; }
+    public boolean hasDiscount() { return hasDiscount; }
+
     @Override
     public void updateStock(int quantity) {
         this.quantityInStock += quantity;
@@ -118,6 +131,8 @@ class GroceryItem extends StockItem {
         this.expirationDate = expirationDate;
     }
 
+    public Date getExpirationDate() { return expirationDate; }
+
     @Override
     public void updateStock(int quantity) {
         this.quantityInStock += quantity;
@@ -152,6 +167,8 @@ class FurnitureItem extends StockItem {
         this.weight = weight;
     }
 
+    public double getWeight() { return weight; }
+
     @Override
     public void updateStock(int quantity) {
         this.quantityInStock += quantity;
@@ -182,6 +199,8 @@ class PerishableItem extends StockItem {
         this.expirationDate = expirationDate;
     }
 
+    public Date getExpirationDate() { return expirationDate; }
+
     @Override
     public void updateStock(int quantity) {
         this.quantityInStock += quantity;
@@ -208,8 +227,14 @@ class PerishableItem extends StockItem {
 
 // --- Main Program ---
 public class StockManagementSystem {
-    static Scanner sc = new Scanner(System.in);
-    static List<StockItem> items = new ArrayList<>();
+    static ConsoleInput sc = ConsoleInput.stdin();
+    static List<StockItem> items = Collections.synchronizedList(new ArrayList<>());
+    static Map<String, StockItem> itemsById = new ConcurrentHashMap<>();
+
+    // Runs on first use of the stock system, not at program start
+    static {
+        StateSnapshot.restoreStock(items, itemsById);
+    }
 
     public static void start() {
         while (true) {
@@ -223,23 +248,29 @@ public class StockManagementSystem {
             System.out.println("0. Return to Main Menu");
             System.out.print("Choose option: ");
             int choice = sc.nextInt();
-            sc.nextLine(); // consume newline
+            sc.skipLine(); // consume newline
 
             switch (choice) {
                 case 1:
                     addElectronicsItem();
+                    break;
                 case 2:
                     addClothingItem();
+                    break;
                 case 3:
                     addGroceryItem();
+                    break;
                 case 4:
                     addFurnitureItem();
+                    break;
                 case 5:
                     addPerishableItem();
+                    break;
                 case 6:
                     showReport();
-                case 7:
-                    System.exit(0);
+                    break;
+                case 0:
+                    return;
                 default:
                     System.out.println("Invalid option. Try again.");
             }
@@ -255,7 +286,7 @@ public class StockManagementSystem {
         int qty = sc.nextInt();
         System.out.print("Price per unit: ");
         double price = sc.nextDouble();
-        sc.nextLine();
+        sc.skipLine();
         System.out.print("Supplier: ");
         String supplier = sc.nextLine();
         System.out.print("Warranty (months): ");
@@ -265,8 +296,7 @@ public class StockManagementSystem {
 
         ElectronicItem ei = new ElectronicItem(id, name, qty, price, supplier, warranty, discount);
         ei.applyDiscount();
-        items.add(ei);
-        System.out.println("Electronics item added!");
+        addAndReport(ei, "Electronics item added!");
     }
 
     private static void addClothingItem() {
@@ -278,7 +308,7 @@ public class StockManagementSystem {
         int qty = sc.nextInt();
         System.out.print("Price per unit: ");
         double price = sc.nextDouble();
-        sc.nextLine();
+        sc.skipLine();
         System.out.print("Supplier: ");
         String supplier = sc.nextLine();
         System.out.print("Sizes (comma separated): ");
@@ -288,8 +318,7 @@ public class StockManagementSystem {
         System.out.print("Has discount? (true/false): ");
         boolean discount = sc.nextBoolean();
 
-        items.add(new ClothingItem(id, name, qty, price, supplier, sizes, colors, discount));
-        System.out.println("Clothing item added!");
+        addAndReport(new ClothingItem(id, name, qty, price, supplier, sizes, colors, discount), "Clothing item added!");
     }
 
     private static void addGroceryItem() {
@@ -301,15 +330,14 @@ public class StockManagementSystem {
         int qty = sc.nextInt();
         System.out.print("Price per unit: ");
         double price = sc.nextDouble();
-        sc.nextLine();
+        sc.skipLine();
         System.out.print("Supplier: ");
         String supplier = sc.nextLine();
         System.out.print("Expiration (yyyy-mm-dd): ");
         String dateStr = sc.nextLine();
         Date exp = java.sql.Date.valueOf(dateStr);
 
-        items.add(new GroceryItem(id, name, qty, price, supplier, exp));
-        System.out.println("Grocery item added!");
+        addAndReport(new GroceryItem(id, name, qty, price, supplier, exp), "Grocery item added!");
     }
 
     private static void addFurnitureItem() {
@@ -323,12 +351,11 @@ public class StockManagementSystem {
         double price = sc.nextDouble();
         System.out.print("Weight (kg): ");
         double weight = sc.nextDouble();
-        sc.nextLine();
+        sc.skipLine();
         System.out.print("Supplier: ");
         String supplier = sc.nextLine();
 
-        items.add(new FurnitureItem(id, name, qty, price, supplier, weight));
-        System.out.println("Furniture item added!");
+        addAndReport(new FurnitureItem(id, name, qty, price, supplier, weight), "Furniture item added!");
     }
 
     private static void addPerishableItem() {
@@ -340,23 +367,59 @@ public class StockManagementSystem {
         int qty = sc.nextInt();
         System.out.print("Price per unit: ");
         double price = sc.nextDouble();
-        sc.nextLine();
+        sc.skipLine();
         System.out.print("Supplier: ");
         String supplier = sc.nextLine();
         System.out.print("Expiration (yyyy-mm-dd): ");
         String dateStr = sc.nextLine();
         Date exp = java.sql.Date.valueOf(dateStr);
 
-        items.add(new PerishableItem(id, name, qty, price, supplier, exp));
-        System.out.println("Perishable item added!");
+        addAndReport(new PerishableItem(id, name, qty, price, supplier, exp), "Perishable item added!");
+    }
+
+    private static void addAndReport(StockItem item, String added) {
+        System.out.println(addItem(item) ? added : "Error: A stock item with this ID already exists.");
+    }
+
+    // Returns false, and adds nothing, if the ledger already has an item with this ID
+    public static boolean addItem(StockItem item) {
+        long start = System.nanoTime();
+        try {
+            if (itemsById.putIfAbsent(item.itemId, item) != null) return false;
+            items.add(item);
+            InventoryBus.shared().publishSync(item.itemId);
+            return true;
+        } finally {
+            Metrics.STOCK_UPDATE.record(start);
+        }
+    }
+
+    public static boolean updateStock(String itemId, int quantity) {
+        long start = System.nanoTime();
+        try {
+            StockItem item = itemsById.get(itemId);
+            if (item == null) return false;
+            synchronized (item) {
+                if (item.quantityInStock + quantity < 0) throw new IllegalArgumentException("Stock cannot go below zero.");
+                item.updateStock(quantity);
+            }
+            InventoryBus.shared().publishSync(itemId);
+            return true;
+        } finally {
+            Metrics.STOCK_UPDATE.record(start);
+        }
     }
 
     private static void showReport() {
+        long start = System.nanoTime();
         System.out.println("\n--- INVENTORY REPORT ---");
-        for (StockItem item : items) {
-            item.generateStockReport();
-            item.validateStock();
-            System.out.println("Stock Value: $" + item.calculateStockValue() + "\n");
+        synchronized (items) {
+            for (StockItem item : items) {
+                item.generateStockReport();
+                item.validateStock();
+                System.out.println("Stock Value: $" + item.calculateStockValue() + "\n");
+            }
         }
+        Metrics.REPORT_GENERATION.record(start);
     }
 }
\ No newline at end of file